@@ -27,14 +27,18 @@ package com.oroarmor.vulkan;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import com.oroarmor.vulkan.context.VulkanContext;
 import com.oroarmor.vulkan.glfw.GLFWContext;
 import com.oroarmor.vulkan.render.*;
 import com.oroarmor.vulkan.render.BufferLayout.BufferElement.CommonBufferElement;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+import com.oroarmor.vulkan.render.pipeline.PushConstantWriter;
 import com.oroarmor.vulkan.util.Profiler;
+import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.lwjgl.glfw.GLFW;
@@ -46,6 +50,15 @@ public class VulkanApplication implements AutoCloseable {
     protected final GLFWContext glfwContext;
     protected final VulkanContext vulkanContext;
     protected final VulkanRenderer vulkanRenderer;
+    protected final ShaderCompiler shaderCompiler;
+    protected final CompletableFuture<ShaderCompiler.CompiledShader> compiledShader;
+    protected final ShaderReloader shaderReloader;
+
+    public static final String SHADER_FILE = "com/oroarmor/vulkan/vulkan_shader.glsl";
+    public static final String UNIFORM_SHADER_FILE = "com/oroarmor/vulkan/vulkan_uniform_shader.glsl";
+    public static final int UNIFORM_SIZE = 3 * 16 * Float.BYTES;
+    public static final PushConstantRange TRANSFORM_RANGE = new PushConstantRange(VK_SHADER_STAGE_VERTEX_BIT, 0, 16 * Float.BYTES);
+    public static final PipelineLayout UNIFORM_LAYOUT = PipelineLayout.of(List.of(new DescriptorBinding(0, DescriptorBinding.DescriptorType.UNIFORM_BUFFER_DYNAMIC, VK_SHADER_STAGE_VERTEX_BIT))).withPushConstants(TRANSFORM_RANGE);
 
     public static final float HEXAGON_RADIUS = 1f;
     public static final float HALF_RADIUS = HEXAGON_RADIUS / 2f;
@@ -63,9 +76,13 @@ public class VulkanApplication implements AutoCloseable {
     public static final int[] INDICES = {0, 1, 2, 0, 2, 3, 0, 3, 4, 0, 4, 5, 0, 5, 6, 0, 6, 1};
 
     public VulkanApplication() {
+        shaderCompiler = new ShaderCompiler();
+        compiledShader = shaderCompiler.compile(UNIFORM_SHADER_FILE);
         glfwContext = new GLFWContext(800, 600, "Hello Vulkan");
         vulkanContext = new VulkanContext(glfwContext);
         vulkanRenderer = new VulkanRenderer(vulkanContext, glfwContext);
+        shaderReloader = ShaderReloader.createFromProperty(shaderCompiler);
+        vulkanRenderer.setShaderReloader(shaderReloader);
     }
 
     public void run() {
@@ -76,14 +93,22 @@ public class VulkanApplication implements AutoCloseable {
         });
 
         VulkanBuffer vertexBuffer = new VulkanBuffer(vulkanContext, Vertex.LAYOUT, Arrays.asList(VERTICES), VK_BUFFER_USAGE_VERTEX_BUFFER_BIT);
-        VulkanBuffer vertexBuffer2 = new VulkanBuffer(vulkanContext, Vertex.LAYOUT, Arrays.stream(VERTICES).peek(vertex -> vertex.pos.mul(-0.5f)).collect(Collectors.toList()), VK_BUFFER_USAGE_VERTEX_BUFFER_BIT);
-        VulkanBuffer indexBuffer = new VulkanBuffer(vulkanContext, new BufferLayout().push(new BufferLayout.BufferElement(1, CommonBufferElement.INTEGER, false)), intToIndex(INDICES), VK_BUFFER_USAGE_INDEX_BUFFER_BIT);
+        VulkanBuffer indexBuffer = new VulkanBuffer(vulkanContext, new BufferLayout().push(new BufferLayout.BufferElement(1, CommonBufferElement.INTEGER, false)), INDICES, VK_BUFFER_USAGE_INDEX_BUFFER_BIT);
 
-        Shader shader = new Shader(vulkanContext, vulkanRenderer, "com/oroarmor/vulkan/vulkan_shader.glsl", new Shader.VertexInputDescriptor(Vertex.LAYOUT));
+        Shader shader = shaderCompiler.load(compiledShader, CompletableFuture.completedFuture(vulkanContext), vulkanRenderer, new Shader.VertexInputDescriptor(Vertex.LAYOUT), UNIFORM_LAYOUT).join();
+        vulkanRenderer.getGraphicsPipeline().prepare(shader);
+        if (shaderReloader != null) {
+            shaderReloader.register(shader);
+        }
 
         Profiler profiler = vulkanRenderer.getProfiler();
-        Consumer<VulkanRenderer> step1 = VulkanRenderer.renderIndexedWithShader(shader, vertexBuffer, indexBuffer);
-        Consumer<VulkanRenderer> step2 = VulkanRenderer.renderIndexedWithShader(shader, vertexBuffer2, indexBuffer);
+        long start = System.nanoTime();
+        Consumer<VulkanRenderer> step1 = VulkanRenderer.renderIndexedWithShader(shader, vertexBuffer, indexBuffer,
+                VulkanRenderer.uniforms(shader, 0, 0, UNIFORM_SIZE, data -> writeUniforms(data, (System.nanoTime() - start) / 1e9f))
+                        .andThen(VulkanRenderer.pushConstants(shader, TRANSFORM_RANGE, new Matrix4f(), PushConstantWriter.MATRIX_4F)));
+        Consumer<VulkanRenderer> step2 = VulkanRenderer.renderIndexedWithShader(shader, vertexBuffer, indexBuffer,
+                VulkanRenderer.uniforms(shader, 0, 0, UNIFORM_SIZE, data -> writeUniforms(data, -(System.nanoTime() - start) / 1e9f))
+                        .andThen(VulkanRenderer.pushConstants(shader, TRANSFORM_RANGE, new Matrix4f().scale(-0.5f), PushConstantWriter.MATRIX_4F)));
 
         profiler.push("Complete window loop");
         while (!glfwContext.shouldClose()) {
@@ -105,12 +130,20 @@ public class VulkanApplication implements AutoCloseable {
         shader.close();
     }
 
-    private static List<CopyableMemory> intToIndex(int[] arr) {
-        return Arrays.stream(arr).boxed().map(CopyableMemory.IndexBufferMemory::new).collect(Collectors.toList());
+    protected static void writeUniforms(ByteBuffer data, float angle) {
+        Matrix4f identity = new Matrix4f();
+        new Matrix4f().rotateZ(angle).get(0, data);
+        identity.get(16 * Float.BYTES, data);
+        identity.get(2 * 16 * Float.BYTES, data);
     }
 
     @Override
     public void close() {
+        vulkanRenderer.close();
+        if (shaderReloader != null) {
+            shaderReloader.close();
+        }
+        shaderCompiler.close();
         glfwContext.close();
         vulkanContext.close();
     }
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.benchmark;
+
+import java.util.List;
+import java.util.Random;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.*;
+import com.oroarmor.vulkan.render.BufferLayout.BufferElement.CommonBufferElement;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+import com.oroarmor.vulkan.render.pipeline.PushConstantWriter;
+import com.oroarmor.vulkan.render.pipeline.VulkanComputePipeline;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class ComputeBenchmark {
+    public static final String SHADER_FILE = "com/oroarmor/vulkan/vulkan_particle_compute.glsl";
+    public static final int LOCAL_SIZE = 64;
+    public static final float DELTA_TIME = 1 / 60f;
+    public static final PushConstantRange STEP_RANGE = new PushConstantRange(VK_SHADER_STAGE_COMPUTE_BIT, 0, 2 * Float.BYTES);
+    public static final PipelineLayout LAYOUT = PipelineLayout.of(List.of(new DescriptorBinding(0, DescriptorBinding.DescriptorType.STORAGE_BUFFER, VK_SHADER_STAGE_COMPUTE_BIT))).withPushConstants(STEP_RANGE);
+
+    public static void main(String[] args) {
+        int particles = args.length > 0 ? Integer.parseInt(args[0]) : 1 << 20;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        boolean debug = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        try (VulkanContext context = new VulkanContext(debug)) {
+            run(context, particles, steps);
+        }
+    }
+
+    public static void run(VulkanContext context, int particles, int steps) {
+        float[] data = createParticles(particles, 0);
+        GPUResult result = stepOnGPU(context, data, steps);
+        stepOnCPU(data, steps);
+
+        float maxError = 0;
+        for (int i = 0; i < data.length; i++) {
+            maxError = Math.max(maxError, Math.abs(result.particles()[i] - data[i]));
+        }
+
+        System.out.printf("Updated %d particles for %d steps in %.2f ms (%.3f ms/step, %d dispatches)%n", particles, steps, result.elapsedNanos() / 1e6, result.elapsedNanos() / 1e6 / steps, result.dispatches());
+        System.out.printf("Max error against the CPU update: %e%n", maxError);
+        if (maxError > 1e-3f) {
+            throw new RuntimeException("Compute results do not match the CPU update");
+        }
+    }
+
+    // Each particle is a position followed by a velocity, both as vec2
+    public static float[] createParticles(int particles, long seed) {
+        float[] data = new float[particles * 4];
+        Random random = new Random(seed);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat() * 2 - 1;
+        }
+        return data;
+    }
+
+    public static void stepOnCPU(float[] data, int steps) {
+        for (int step = 0; step < steps; step++) {
+            for (int i = 0; i < data.length / 4; i++) {
+                data[i * 4] += data[i * 4 + 2] * DELTA_TIME;
+                data[i * 4 + 1] += data[i * 4 + 3] * DELTA_TIME;
+            }
+        }
+    }
+
+    public static GPUResult stepOnGPU(VulkanContext context, float[] data, int steps) {
+        int particles = data.length / 4;
+        BufferLayout layout = new BufferLayout()
+                .push(new BufferLayout.BufferElement(1, CommonBufferElement.VECTOR_2F, false))
+                .push(new BufferLayout.BufferElement(1, CommonBufferElement.VECTOR_2F, false));
+        Shader shader = new Shader(context, SHADER_FILE, LAYOUT);
+        try (VulkanComputeDispatcher dispatcher = new VulkanComputeDispatcher(context);
+             VulkanComputePipeline pipeline = new VulkanComputePipeline(context, shader);
+             VulkanBuffer particleBuffer = new VulkanBuffer(context, layout, data, VulkanComputeDispatcher.STORAGE_BUFFER_USAGE)) {
+            List<DescriptorWrite> writes = List.of(new DescriptorWrite(0, DescriptorBinding.DescriptorType.STORAGE_BUFFER, particleBuffer));
+            int groups = VulkanComputeDispatcher.groupCount(particles, LOCAL_SIZE);
+            PushConstantWriter<Integer> stepWriter = (count, buffer) -> buffer.putFloat(0, DELTA_TIME).putInt(Float.BYTES, count);
+
+            long start = System.nanoTime();
+            dispatcher.submit(recorder -> {
+                recorder.bindPipeline(pipeline).bindDescriptorSet(0, writes).pushConstants(STEP_RANGE, particles, stepWriter);
+                for (int i = 0; i < steps; i++) {
+                    if (i > 0) {
+                        recorder.barrier();
+                    }
+                    recorder.dispatch(groups, 1, 1);
+                }
+            }).join();
+            long elapsed = System.nanoTime() - start;
+
+            float[] result = new float[data.length];
+            dispatcher.readback(particleBuffer).join().asFloatBuffer().get(result);
+            return new GPUResult(result, elapsed, dispatcher.getDispatches());
+        } finally {
+            shader.close();
+        }
+    }
+
+    public record GPUResult(float[] particles, long elapsedNanos, long dispatches) {
+    }
+}
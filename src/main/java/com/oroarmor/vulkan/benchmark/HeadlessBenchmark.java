@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.benchmark;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.oroarmor.vulkan.VulkanApplication;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.*;
+import com.oroarmor.vulkan.render.BufferLayout.BufferElement.CommonBufferElement;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class HeadlessBenchmark {
+    public static final int WARMUP_FRAMES = 100;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 800;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 600;
+        boolean debug = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        try (VulkanContext context = new VulkanContext(debug)) {
+            run(context, frames, width, height);
+        }
+    }
+
+    public static void run(VulkanContext context, int frames, int width, int height) {
+        try (VulkanOffscreenRenderer renderer = new VulkanOffscreenRenderer(context, width, height);
+             VulkanBuffer vertexBuffer = new VulkanBuffer(context, VulkanApplication.Vertex.LAYOUT, Arrays.asList(VulkanApplication.VERTICES), VK_BUFFER_USAGE_VERTEX_BUFFER_BIT);
+             VulkanBuffer indexBuffer = new VulkanBuffer(context, new BufferLayout().push(new BufferLayout.BufferElement(1, CommonBufferElement.INTEGER, false)), VulkanApplication.INDICES, VK_BUFFER_USAGE_INDEX_BUFFER_BIT)) {
+            Shader shader = new Shader(context, renderer, "com/oroarmor/vulkan/vulkan_shader.glsl", new Shader.VertexInputDescriptor(VulkanApplication.Vertex.LAYOUT));
+            Consumer<VulkanRenderer> step = VulkanRenderer.renderIndexedWithShader(shader, vertexBuffer, indexBuffer);
+
+            renderer.renderFrames(WARMUP_FRAMES, () -> renderer.addRenderStep(step));
+            context.getLogicalDevice().waitIdle();
+            renderer.getProfiler().clear();
+
+            long start = System.nanoTime();
+            renderer.renderFrames(frames, () -> renderer.addRenderStep(step));
+            context.getLogicalDevice().waitIdle();
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println(renderer.getProfiler().dump());
+            System.out.printf("Rendered %d frames at %dx%d in %.2f ms (%.3f ms/frame, %.1f fps)%n", frames, width, height, elapsed / 1e6, elapsed / 1e6 / frames, frames / (elapsed / 1e9));
+
+            shader.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.oroarmor.vulkan.VulkanApplication;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.context.VulkanPipelineCache;
+import com.oroarmor.vulkan.render.Shader;
+import com.oroarmor.vulkan.render.VulkanOffscreenRenderer;
+import com.oroarmor.vulkan.render.pipeline.VulkanGraphicsPipeline;
+
+public class PipelineCacheBenchmark {
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        boolean debug = args.length > 1 && Boolean.parseBoolean(args[1]);
+
+        Path cacheFile = Files.createTempFile("pipeline-cache", ".bin");
+        System.setProperty(VulkanPipelineCache.CACHE_FILE_PROPERTY, cacheFile.toString());
+
+        try {
+            double cold = 0;
+            double warm = 0;
+            for (int i = 0; i < iterations; i++) {
+                Files.deleteIfExists(cacheFile);
+                cold += createPipeline(debug, false);
+                warm += createPipeline(debug, true);
+            }
+
+            System.out.printf("Pipeline creation over %d context restarts%n", iterations);
+            System.out.printf("Cold: %.3f ms/pipeline%n", cold / iterations);
+            System.out.printf("Warm: %.3f ms/pipeline (%.1fx faster, %d byte cache)%n", warm / iterations, cold / warm, Files.size(cacheFile));
+        } finally {
+            Files.deleteIfExists(cacheFile);
+            System.clearProperty(VulkanPipelineCache.CACHE_FILE_PROPERTY);
+        }
+    }
+
+    public static double createPipeline(boolean debug, boolean expectWarm) {
+        try (VulkanContext context = new VulkanContext(debug)) {
+            if (context.getPipelineCache().wasLoaded() != expectWarm) {
+                throw new IllegalStateException("Pipeline cache " + (expectWarm ? "was not" : "was unexpectedly") + " loaded from " + context.getPipelineCache().getFile());
+            }
+
+            try (VulkanOffscreenRenderer renderer = new VulkanOffscreenRenderer(context, 800, 600)) {
+                Shader shader = new Shader(context, renderer, VulkanApplication.SHADER_FILE, new Shader.VertexInputDescriptor(VulkanApplication.Vertex.LAYOUT));
+                VulkanGraphicsPipeline pipeline = new VulkanGraphicsPipeline(context, renderer);
+
+                long start = System.nanoTime();
+                pipeline.getPipeline(shader);
+                long elapsed = System.nanoTime() - start;
+
+                pipeline.close();
+                shader.close();
+                return elapsed / 1e6;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.benchmark;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.oroarmor.vulkan.compute.CPUPrimitives;
+import com.oroarmor.vulkan.compute.VulkanPrimitives;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.VulkanBuffer;
+import com.oroarmor.vulkan.render.VulkanComputeDispatcher;
+
+public class PrimitivesBenchmark {
+    public static final int[] DEFAULT_SIZES = {1, 255, 256, 257, 65536 + 3, 1 << 20};
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray() : DEFAULT_SIZES;
+        boolean debug = args.length > 1 && Boolean.parseBoolean(args[1]);
+
+        try (VulkanContext context = new VulkanContext(debug)) {
+            run(context, sizes);
+        }
+    }
+
+    public static void run(VulkanContext context, int[] sizes) {
+        Random random = new Random(0);
+        try (VulkanComputeDispatcher dispatcher = new VulkanComputeDispatcher(context);
+             VulkanPrimitives primitives = new VulkanPrimitives(context, dispatcher)) {
+            for (int size : sizes) {
+                int[] values = random.ints(size).toArray();
+                int[] smallValues = random.ints(size, 0, 1024).toArray();
+                int[] flags = random.ints(size, 0, 2).toArray();
+
+                try (VulkanBuffer valueBuffer = createBuffer(context, values);
+                     VulkanBuffer smallValueBuffer = createBuffer(context, smallValues);
+                     VulkanBuffer flagBuffer = createBuffer(context, flags);
+                     VulkanBuffer outputBuffer = createBuffer(context, new int[size]);
+                     VulkanBuffer keyBuffer = createBuffer(context, values);
+                     VulkanBuffer payloadBuffer = createBuffer(context, smallValues)) {
+                    time("scan", size, () -> primitives.exclusiveScan(smallValueBuffer, outputBuffer, size).join());
+                    check("scan", size, CPUPrimitives.exclusiveScan(smallValues), read(dispatcher, outputBuffer, size));
+
+                    for (VulkanPrimitives.ReduceOperation operation : VulkanPrimitives.ReduceOperation.values()) {
+                        int result = time("reduce " + operation, size, () -> primitives.reduce(valueBuffer, size, operation).join());
+                        check("reduce " + operation, size, new int[]{CPUPrimitives.reduce(values, operation)}, new int[]{result});
+                    }
+
+                    int count = time("compact", size, () -> primitives.compact(valueBuffer, flagBuffer, outputBuffer, size).join());
+                    check("compact", size, CPUPrimitives.compact(values, flags), read(dispatcher, outputBuffer, count));
+
+                    int[] sortedKeys = values.clone();
+                    int[] sortedValues = smallValues.clone();
+                    CPUPrimitives.sort(sortedKeys, sortedValues);
+                    time("sort", size, () -> primitives.sort(keyBuffer, payloadBuffer, size).join());
+                    check("sort keys", size, sortedKeys, read(dispatcher, keyBuffer, size));
+                    check("sort values", size, sortedValues, read(dispatcher, payloadBuffer, size));
+                }
+            }
+        }
+        System.out.println("All GPU primitives match the CPU reference");
+    }
+
+    protected static VulkanBuffer createBuffer(VulkanContext context, int[] data) {
+        return new VulkanBuffer(context, VulkanPrimitives.UINT_LAYOUT, data.length > 0 ? data : new int[1], VulkanComputeDispatcher.STORAGE_BUFFER_USAGE);
+    }
+
+    protected static int[] read(VulkanComputeDispatcher dispatcher, VulkanBuffer buffer, int count) {
+        IntBuffer data = dispatcher.readback(buffer, 0, (long) count * Integer.BYTES).join().asIntBuffer();
+        int[] values = new int[count];
+        data.get(values);
+        return values;
+    }
+
+    protected static <T> T time(String name, int size, Supplier<T> operation) {
+        long start = System.nanoTime();
+        T result = operation.get();
+        System.out.printf("%-12s %9d elements in %.3f ms%n", name, size, (System.nanoTime() - start) / 1e6);
+        return result;
+    }
+
+    protected static void time(String name, int size, Runnable operation) {
+        time(name, size, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    protected static void check(String name, int size, int[] expected, int[] actual) {
+        if (!Arrays.equals(expected, actual)) {
+            int mismatch = Arrays.mismatch(expected, actual);
+            throw new RuntimeException(name + " of " + size + " elements does not match the CPU reference at index " + mismatch);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.oroarmor.vulkan.VulkanApplication;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.SPIRVCache;
+import com.oroarmor.vulkan.render.Shader;
+
+public class ShaderCacheBenchmark {
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String shaderFile = args.length > 1 ? args[1] : "com/oroarmor/vulkan/vulkan_shader.glsl";
+        boolean debug = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        SPIRVCache cache = new SPIRVCache(Files.createTempDirectory("spirv-cache"));
+        SPIRVCache previousCache = Shader.getCache();
+        Shader.setCache(cache);
+
+        try (VulkanContext context = new VulkanContext(debug)) {
+            double cold = run(context, shaderFile, iterations, cache, true);
+            double warm = run(context, shaderFile, iterations, cache, false);
+
+            System.out.printf("Shader %s over %d iterations%n", shaderFile, iterations);
+            System.out.printf("Cold: %.3f ms/shader%n", cold);
+            System.out.printf("Warm: %.3f ms/shader (%.1fx faster, %d hits, %d misses)%n", warm, cold / warm, cache.getHits(), cache.getMisses());
+        } finally {
+            cache.clear();
+            Files.deleteIfExists(cache.getDirectory());
+            Shader.setCache(previousCache);
+        }
+    }
+
+    public static double run(VulkanContext context, String shaderFile, int iterations, SPIRVCache cache, boolean cold) {
+        long elapsed = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (cold) {
+                cache.clear();
+            }
+            long start = System.nanoTime();
+            Shader shader = new Shader(context, null, shaderFile, new Shader.VertexInputDescriptor(VulkanApplication.Vertex.LAYOUT));
+            elapsed += System.nanoTime() - start;
+            shader.close();
+        }
+        context.getDeletionQueue().flush();
+        return elapsed / 1e6 / iterations;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.compute;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+public final class CPUPrimitives {
+    private CPUPrimitives() {
+    }
+
+    public static int[] exclusiveScan(int[] input) {
+        int[] output = new int[input.length];
+        int sum = 0;
+        for (int i = 0; i < input.length; i++) {
+            output[i] = sum;
+            sum += input[i];
+        }
+        return output;
+    }
+
+    public static int reduce(int[] input, VulkanPrimitives.ReduceOperation operation) {
+        int result = operation.identity();
+        for (int value : input) {
+            result = operation.apply(result, value);
+        }
+        return result;
+    }
+
+    public static int[] compact(int[] values, int[] flags) {
+        int[] output = new int[values.length];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (flags[i] != 0) {
+                output[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(output, count);
+    }
+
+    // Sorts both arrays in place by unsigned key, keeping equal keys in their original order like the GPU sort
+    public static void sort(int[] keys, int[] values) {
+        Integer[] order = new Integer[keys.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> keys[i] ^ Integer.MIN_VALUE));
+
+        int[] sortedKeys = new int[keys.length];
+        int[] sortedValues = new int[values.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        System.arraycopy(sortedKeys, 0, keys, 0, keys.length);
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.compute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.*;
+import com.oroarmor.vulkan.render.BufferLayout.BufferElement.CommonBufferElement;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+import com.oroarmor.vulkan.render.pipeline.PushConstantWriter;
+import com.oroarmor.vulkan.render.pipeline.VulkanComputePipeline;
+import org.lwjgl.system.MemoryUtil;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanPrimitives implements AutoCloseable {
+    public static final int BLOCK_SIZE = 256;
+    public static final int RADIX_BITS = 4;
+    public static final int RADIX_SIZE = 1 << RADIX_BITS;
+    public static final PushConstantRange PARAMETERS_RANGE = new PushConstantRange(VK_SHADER_STAGE_COMPUTE_BIT, 0, 4 * Integer.BYTES);
+    public static final BufferLayout UINT_LAYOUT = new BufferLayout().push(new BufferLayout.BufferElement(1, CommonBufferElement.INTEGER, false));
+
+    protected final VulkanContext context;
+    protected final VulkanComputeDispatcher dispatcher;
+    protected final List<Shader> shaders = new ArrayList<>();
+    protected final List<VulkanComputePipeline> pipelines = new ArrayList<>();
+    protected final int maxGroupCount;
+
+    protected final VulkanComputePipeline scanPipeline;
+    protected final VulkanComputePipeline scanAddPipeline;
+    protected final VulkanComputePipeline reducePipeline;
+    protected final VulkanComputePipeline compactPipeline;
+    protected final VulkanComputePipeline histogramPipeline;
+    protected final VulkanComputePipeline scatterPipeline;
+
+    public VulkanPrimitives(VulkanContext context, VulkanComputeDispatcher dispatcher) {
+        this.context = context;
+        this.dispatcher = dispatcher;
+        this.maxGroupCount = context.getPhysicalDevice().getLimits().maxComputeWorkGroupCount(0);
+
+        scanPipeline = createPipeline("scan", 3);
+        scanAddPipeline = createPipeline("scan_add", 2);
+        reducePipeline = createPipeline("reduce", 2);
+        compactPipeline = createPipeline("compact", 5);
+        histogramPipeline = createPipeline("radix_histogram", 2);
+        scatterPipeline = createPipeline("radix_scatter", 5);
+    }
+
+    protected VulkanComputePipeline createPipeline(String name, int bindings) {
+        List<DescriptorBinding> descriptorBindings = new ArrayList<>();
+        for (int i = 0; i < bindings; i++) {
+            descriptorBindings.add(new DescriptorBinding(i, DescriptorBinding.DescriptorType.STORAGE_BUFFER, VK_SHADER_STAGE_COMPUTE_BIT));
+        }
+
+        Shader shader = new Shader(context, "com/oroarmor/vulkan/primitives/" + name + ".glsl", PipelineLayout.of(descriptorBindings).withPushConstants(PARAMETERS_RANGE));
+        shaders.add(shader);
+        VulkanComputePipeline pipeline = new VulkanComputePipeline(context, shader);
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    public CompletableFuture<Void> exclusiveScan(VulkanBuffer input, VulkanBuffer output, int count) {
+        return submit(count, (recorder, scratch) -> recordScan(recorder, input, output, count, scratch));
+    }
+
+    public CompletableFuture<Void> reduce(VulkanBuffer input, VulkanBuffer output, int count, ReduceOperation operation) {
+        return submit(count, (recorder, scratch) -> recordReduce(recorder, input, output, count, operation, scratch));
+    }
+
+    public CompletableFuture<Integer> reduce(VulkanBuffer input, int count, ReduceOperation operation) {
+        if (count == 0) {
+            return CompletableFuture.completedFuture(operation.identity());
+        }
+        VulkanBuffer result = createResultBuffer();
+        return readResult(result, reduce(input, result, count, operation));
+    }
+
+    // Flags must be 0 or 1, the scan of the flags is used directly as the output index
+    public CompletableFuture<Void> compact(VulkanBuffer values, VulkanBuffer flags, VulkanBuffer output, VulkanBuffer compactedCount, int count) {
+        return submit(count, (recorder, scratch) -> {
+            VulkanBuffer offsets = createScratch(scratch, count);
+            recordScan(recorder, flags, offsets, count, scratch);
+            recorder.barrier()
+                    .bindPipeline(compactPipeline)
+                    .bindDescriptorSet(0, storageWrites(values, flags, offsets, output, compactedCount))
+                    .pushConstants(PARAMETERS_RANGE, new int[]{count}, PushConstantWriter.INTEGERS)
+                    .dispatch(VulkanComputeDispatcher.groupCount(count, BLOCK_SIZE), 1, 1);
+        });
+    }
+
+    public CompletableFuture<Integer> compact(VulkanBuffer values, VulkanBuffer flags, VulkanBuffer output, int count) {
+        if (count == 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        VulkanBuffer result = createResultBuffer();
+        return readResult(result, compact(values, flags, output, result, count));
+    }
+
+    // Stable LSD radix sort of unsigned keys, the values are moved along with their keys
+    public CompletableFuture<Void> sort(VulkanBuffer keys, VulkanBuffer values, int count) {
+        return submit(count, (recorder, scratch) -> {
+            int blocks = VulkanComputeDispatcher.groupCount(count, BLOCK_SIZE);
+            VulkanBuffer histogram = createScratch(scratch, RADIX_SIZE * blocks);
+            VulkanBuffer[] keyBuffers = {keys, createScratch(scratch, count)};
+            VulkanBuffer[] valueBuffers = {values, createScratch(scratch, count)};
+
+            for (int pass = 0; pass * RADIX_BITS < Integer.SIZE; pass++) {
+                VulkanBuffer keysIn = keyBuffers[pass & 1];
+                VulkanBuffer valuesIn = valueBuffers[pass & 1];
+                int[] parameters = {count, pass * RADIX_BITS, blocks};
+                if (pass > 0) {
+                    recorder.barrier();
+                }
+
+                recorder.bindPipeline(histogramPipeline)
+                        .bindDescriptorSet(0, storageWrites(keysIn, histogram))
+                        .pushConstants(PARAMETERS_RANGE, parameters, PushConstantWriter.INTEGERS)
+                        .dispatch(blocks, 1, 1)
+                        .barrier();
+                recordScan(recorder, histogram, histogram, RADIX_SIZE * blocks, scratch);
+                recorder.barrier()
+                        .bindPipeline(scatterPipeline)
+                        .bindDescriptorSet(0, storageWrites(keysIn, valuesIn, histogram, keyBuffers[(pass + 1) & 1], valueBuffers[(pass + 1) & 1]))
+                        .pushConstants(PARAMETERS_RANGE, parameters, PushConstantWriter.INTEGERS)
+                        .dispatch(blocks, 1, 1);
+            }
+        });
+    }
+
+    protected void recordScan(VulkanComputeDispatcher.ComputeRecorder recorder, VulkanBuffer input, VulkanBuffer output, int count, List<VulkanBuffer> scratch) {
+        int blocks = checkGroupCount(VulkanComputeDispatcher.groupCount(count, BLOCK_SIZE));
+        VulkanBuffer blockSums = createScratch(scratch, blocks);
+        recorder.bindPipeline(scanPipeline)
+                .bindDescriptorSet(0, storageWrites(input, output, blockSums))
+                .pushConstants(PARAMETERS_RANGE, new int[]{count}, PushConstantWriter.INTEGERS)
+                .dispatch(blocks, 1, 1);
+        if (blocks == 1) {
+            return;
+        }
+
+        recorder.barrier();
+        recordScan(recorder, blockSums, blockSums, blocks, scratch);
+        recorder.barrier()
+                .bindPipeline(scanAddPipeline)
+                .bindDescriptorSet(0, storageWrites(output, blockSums))
+                .pushConstants(PARAMETERS_RANGE, new int[]{count}, PushConstantWriter.INTEGERS)
+                .dispatch(blocks, 1, 1);
+    }
+
+    protected void recordReduce(VulkanComputeDispatcher.ComputeRecorder recorder, VulkanBuffer input, VulkanBuffer output, int count, ReduceOperation operation, List<VulkanBuffer> scratch) {
+        VulkanBuffer current = input;
+        int remaining = count;
+        while (true) {
+            int blocks = checkGroupCount(VulkanComputeDispatcher.groupCount(remaining, BLOCK_SIZE));
+            VulkanBuffer target = blocks == 1 ? output : createScratch(scratch, blocks);
+            recorder.bindPipeline(reducePipeline)
+                    .bindDescriptorSet(0, storageWrites(current, target))
+                    .pushConstants(PARAMETERS_RANGE, new int[]{remaining, operation.getId()}, PushConstantWriter.INTEGERS)
+                    .dispatch(blocks, 1, 1);
+            if (blocks == 1) {
+                return;
+            }
+            recorder.barrier();
+            current = target;
+            remaining = blocks;
+        }
+    }
+
+    protected CompletableFuture<Void> submit(int count, BiConsumer<VulkanComputeDispatcher.ComputeRecorder, List<VulkanBuffer>> recording) {
+        if (count == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        checkGroupCount(VulkanComputeDispatcher.groupCount(count, BLOCK_SIZE));
+
+        List<VulkanBuffer> scratch = new ArrayList<>();
+        CompletableFuture<Void> future;
+        try {
+            future = dispatcher.submit(recorder -> recording.accept(recorder, scratch));
+        } catch (RuntimeException e) {
+            scratch.forEach(VulkanBuffer::close);
+            throw e;
+        }
+        // Closing defers the frees through the deletion queue, so this only has to happen after the submit
+        return future.whenComplete((v, error) -> scratch.forEach(VulkanBuffer::close));
+    }
+
+    protected VulkanBuffer createScratch(List<VulkanBuffer> scratch, int elements) {
+        VulkanBuffer buffer = new VulkanBuffer(context, UINT_LAYOUT, (long) elements * Integer.BYTES, VulkanComputeDispatcher.STORAGE_BUFFER_USAGE);
+        scratch.add(buffer);
+        return buffer;
+    }
+
+    protected VulkanBuffer createResultBuffer() {
+        return new VulkanBuffer(context, UINT_LAYOUT, Integer.BYTES, VulkanComputeDispatcher.STORAGE_BUFFER_USAGE, VulkanBuffer.BufferMode.MAPPED);
+    }
+
+    protected static CompletableFuture<Integer> readResult(VulkanBuffer result, CompletableFuture<Void> future) {
+        return future.handle((v, error) -> {
+            int value = MemoryUtil.memGetInt(result.getMappedAddress());
+            result.close();
+            if (error != null) {
+                throw error instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(error);
+            }
+            return value;
+        });
+    }
+
+    protected int checkGroupCount(int groups) {
+        if (groups > maxGroupCount) {
+            throw new IllegalArgumentException("Dispatch of " + groups + " workgroups exceeds the device limit of " + maxGroupCount);
+        }
+        return groups;
+    }
+
+    protected static List<DescriptorWrite> storageWrites(VulkanBuffer... buffers) {
+        List<DescriptorWrite> writes = new ArrayList<>(buffers.length);
+        for (int i = 0; i < buffers.length; i++) {
+            writes.add(new DescriptorWrite(i, DescriptorBinding.DescriptorType.STORAGE_BUFFER, buffers[i]));
+        }
+        return writes;
+    }
+
+    @Override
+    public void close() {
+        pipelines.forEach(VulkanComputePipeline::close);
+        shaders.forEach(Shader::close);
+    }
+
+    public enum ReduceOperation {
+        SUM(0, 0), MIN(1, -1), MAX(2, 0);
+
+        private final int id;
+        private final int identity;
+
+        ReduceOperation(int id, int identity) {
+            this.id = id;
+            this.identity = identity;
+        }
+
+        public int apply(int a, int b) {
+            return switch (this) {
+                case SUM -> a + b;
+                case MIN -> Integer.compareUnsigned(a, b) <= 0 ? a : b;
+                case MAX -> Integer.compareUnsigned(a, b) >= 0 ? a : b;
+            };
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int identity() {
+            return identity;
+        }
+    }
+}
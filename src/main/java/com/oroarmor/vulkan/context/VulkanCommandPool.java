@@ -35,9 +35,15 @@ import static org.lwjgl.vulkan.VK10.*;
 public class VulkanCommandPool implements AutoCloseable {
     protected final long commandPool;
     protected final VulkanContext context;
+    protected final int flags;
 
     public VulkanCommandPool(VulkanContext context) {
+        this(context, VK_COMMAND_POOL_CREATE_RESET_COMMAND_BUFFER_BIT);
+    }
+
+    public VulkanCommandPool(VulkanContext context, int flags) {
         this.context = context;
+        this.flags = flags;
         this.commandPool = createCommandPool();
     }
 
@@ -48,7 +54,7 @@ public class VulkanCommandPool implements AutoCloseable {
             VkCommandPoolCreateInfo poolInfo = VkCommandPoolCreateInfo.callocStack(stack);
             poolInfo.sType(VK_STRUCTURE_TYPE_COMMAND_POOL_CREATE_INFO);
             poolInfo.queueFamilyIndex(indices.graphicsFamily);
-            poolInfo.flags(0);
+            poolInfo.flags(flags);
 
             LongBuffer pCommandPool = stack.mallocLong(1);
             VulkanUtil.checkVulkanResult(vkCreateCommandPool(context.getLogicalDevice().getDevice(), poolInfo, null, pCommandPool), "Failed to create command pool");
@@ -57,6 +63,10 @@ public class VulkanCommandPool implements AutoCloseable {
         }
     }
 
+    public void reset() {
+        VulkanUtil.checkVulkanResult(vkResetCommandPool(context.getLogicalDevice().getDevice(), commandPool, 0), "Failed to reset command pool");
+    }
+
     public long getCommandPool() {
         return commandPool;
     }
@@ -25,10 +25,10 @@
 package com.oroarmor.vulkan.context;
 
 import com.oroarmor.vulkan.glfw.GLFWContext;
+import com.oroarmor.vulkan.render.DescriptorSetLayoutCache;
 import com.oroarmor.vulkan.render.VulkanRenderer;
 import com.oroarmor.vulkan.render.VulkanSemaphoreHandler;
 import com.oroarmor.vulkan.render.VulkanSwapChain;
-import javax.swing.*;
 
 public class VulkanContext implements AutoCloseable {
     protected final VulkanInstance instance;
@@ -40,18 +40,36 @@ public class VulkanContext implements AutoCloseable {
     protected final VulkanCommandPool commandPool;
     protected final VulkanValidationLayers validationLayers;
     protected final VulkanSemaphoreHandler semaphoreHandler;
+    protected final VulkanMemoryAllocator memoryAllocator;
+    protected final VulkanUploadManager uploadManager;
+    protected final VulkanDeletionQueue deletionQueue;
+    protected final VulkanPipelineCache pipelineCache;
+    protected final DescriptorSetLayoutCache descriptorSetLayoutCache;
 
     public VulkanContext(GLFWContext glfwContext) {
+        this(glfwContext, true);
+    }
+
+    public VulkanContext(boolean enableDebug) {
+        this(null, enableDebug);
+    }
+
+    protected VulkanContext(GLFWContext glfwContext, boolean enableDebug) {
         this.glfwContext = glfwContext;
-        debug = new VulkanDebug(true, this);
+        debug = new VulkanDebug(enableDebug, this);
         validationLayers = new VulkanValidationLayers(this);
         instance = new VulkanInstance(this);
         debug.setupDebugMessenger();
-        surface = new VulkanSurface(this);
+        surface = glfwContext != null ? new VulkanSurface(this) : null;
         physicalDevice = new VulkanPhysicalDevice(this);
         logicalDevice = new VulkanLogicalDevice(this);
+        memoryAllocator = new VulkanMemoryAllocator(this);
+        deletionQueue = new VulkanDeletionQueue(this);
+        pipelineCache = new VulkanPipelineCache(this);
+        descriptorSetLayoutCache = new DescriptorSetLayoutCache(this);
         commandPool = new VulkanCommandPool(this);
         semaphoreHandler = new VulkanSemaphoreHandler(this);
+        uploadManager = new VulkanUploadManager(this);
     }
 
     public VulkanInstance getInstance() {
@@ -62,13 +80,24 @@ public class VulkanContext implements AutoCloseable {
         return glfwContext;
     }
 
+    public boolean isHeadless() {
+        return glfwContext == null;
+    }
+
     @Override
     public void close() {
+        uploadManager.close();
+        deletionQueue.close();
         semaphoreHandler.close();
         commandPool.close();
+        memoryAllocator.close();
+        descriptorSetLayoutCache.close();
+        pipelineCache.close();
         logicalDevice.close();
         debug.close();
-        surface.close();
+        if (surface != null) {
+            surface.close();
+        }
         instance.close();
     }
 
@@ -99,4 +128,24 @@ public class VulkanContext implements AutoCloseable {
     public VulkanSemaphoreHandler getSemaphoreHandler() {
         return semaphoreHandler;
     }
+
+    public VulkanMemoryAllocator getMemoryAllocator() {
+        return memoryAllocator;
+    }
+
+    public DescriptorSetLayoutCache getDescriptorSetLayoutCache() {
+        return descriptorSetLayoutCache;
+    }
+
+    public VulkanPipelineCache getPipelineCache() {
+        return pipelineCache;
+    }
+
+    public VulkanDeletionQueue getDeletionQueue() {
+        return deletionQueue;
+    }
+
+    public VulkanUploadManager getUploadManager() {
+        return uploadManager;
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.context;
+
+import java.util.ArrayDeque;
+
+public class VulkanDeletionQueue implements AutoCloseable {
+    protected final VulkanContext context;
+    protected final ArrayDeque<PendingDeletion> pendingDeletions = new ArrayDeque<>();
+    protected long submittedSerial;
+    protected long completedSerial;
+
+    public VulkanDeletionQueue(VulkanContext context) {
+        this.context = context;
+    }
+
+    // Anything deleted now may still be recorded into the frame that is submitted next, so it waits for that serial
+    public synchronized void defer(Runnable deletion) {
+        pendingDeletions.add(new PendingDeletion(submittedSerial + 1, deletion));
+    }
+
+    public synchronized long frameSubmitted() {
+        return ++submittedSerial;
+    }
+
+    public synchronized void frameCompleted(long serial) {
+        completedSerial = Math.max(completedSerial, serial);
+        while (!pendingDeletions.isEmpty() && pendingDeletions.peek().serial() <= completedSerial) {
+            pendingDeletions.poll().deletion().run();
+        }
+    }
+
+    public void flush() {
+        context.getLogicalDevice().waitIdle();
+        synchronized (this) {
+            completedSerial = submittedSerial;
+            while (!pendingDeletions.isEmpty()) {
+                pendingDeletions.poll().deletion().run();
+            }
+        }
+    }
+
+    public synchronized long getSubmittedSerial() {
+        return submittedSerial;
+    }
+
+    public synchronized long getCompletedSerial() {
+        return completedSerial;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingDeletions.size();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    protected record PendingDeletion(long serial, Runnable deletion) {
+    }
+}
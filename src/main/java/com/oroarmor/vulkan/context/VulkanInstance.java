@@ -75,8 +75,8 @@ public class VulkanInstance implements AutoCloseable {
         info.sType(VK_STRUCTURE_TYPE_INSTANCE_CREATE_INFO);
         info.pApplicationInfo(applicationInfo);
 
-        PointerBuffer requiredGLFWInstanceExtensions = glfwGetRequiredInstanceExtensions();
-        info.ppEnabledExtensionNames(context.getValidationLayers().getRequiredExtensions(requiredGLFWInstanceExtensions));
+        PointerBuffer requiredInstanceExtensions = context.isHeadless() ? stack.mallocPointer(0) : glfwGetRequiredInstanceExtensions();
+        info.ppEnabledExtensionNames(context.getValidationLayers().getRequiredExtensions(requiredInstanceExtensions));
         context.getValidationLayers().addValidationLayers(info);
 
         info.ppEnabledLayerNames(null);
@@ -29,6 +29,7 @@ import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.*;
 
+import static org.lwjgl.vulkan.KHRSwapchain.vkQueuePresentKHR;
 import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanLogicalDevice implements AutoCloseable {
@@ -41,7 +42,8 @@ public class VulkanLogicalDevice implements AutoCloseable {
         this.context = context;
         device = createVulkanDevice();
         graphicsQueue = createDeviceQueue(context.getPhysicalDevice().getQueueFamilyIndices().graphicsFamily);
-        presentQueue = createDeviceQueue(context.getPhysicalDevice().getQueueFamilyIndices().presentFamily);
+        Integer presentFamily = context.getPhysicalDevice().getQueueFamilyIndices().presentFamily;
+        presentQueue = presentFamily != null ? createDeviceQueue(presentFamily) : null;
     }
 
     private VkQueue createDeviceQueue(Integer queueFamily) {
@@ -75,7 +77,7 @@ public class VulkanLogicalDevice implements AutoCloseable {
             VkPhysicalDeviceFeatures deviceFeatures = VkPhysicalDeviceFeatures.callocStack(stack);
             deviceCreateInfo.pEnabledFeatures(deviceFeatures);
 
-            deviceCreateInfo.ppEnabledExtensionNames(VulkanUtil.asPointerBuffer(VulkanPhysicalDevice.DEVICE_EXTENSIONS));
+            deviceCreateInfo.ppEnabledExtensionNames(VulkanUtil.asPointerBuffer(context.getPhysicalDevice().getDeviceExtensions()));
 
             if (context.getDebug().isDebugEnabled()) {
                 deviceCreateInfo.ppEnabledLayerNames(VulkanUtil.asPointerBuffer(VulkanValidationLayers.VALIDATION_LAYERS));
@@ -89,6 +91,28 @@ public class VulkanLogicalDevice implements AutoCloseable {
         }
     }
 
+    public synchronized int queueSubmit(VkQueue queue, VkSubmitInfo submitInfo, long fence) {
+        return vkQueueSubmit(queue, submitInfo, fence);
+    }
+
+    // Taking the deletion serial under the queue lock keeps serials in the order the work reaches the queue
+    public synchronized long queueSubmitWithSerial(VkQueue queue, VkSubmitInfo submitInfo, long fence, String errorMessage) {
+        VulkanUtil.checkVulkanResult(vkQueueSubmit(queue, submitInfo, fence), errorMessage);
+        return context.getDeletionQueue().frameSubmitted();
+    }
+
+    public synchronized int queuePresent(VkPresentInfoKHR presentInfo) {
+        return vkQueuePresentKHR(presentQueue, presentInfo);
+    }
+
+    public synchronized void queueWaitIdle(VkQueue queue) {
+        vkQueueWaitIdle(queue);
+    }
+
+    public synchronized void waitIdle() {
+        vkDeviceWaitIdle(device);
+    }
+
     @Override
     public void close() {
         vkDestroyDevice(device, null);
@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.context;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oroarmor.vulkan.util.BuddyAllocator;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkMemoryAllocateInfo;
+import org.lwjgl.vulkan.VkMemoryRequirements;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanMemoryAllocator implements AutoCloseable {
+    public static final long DEFAULT_BLOCK_SIZE = 64 * 1024 * 1024;
+    public static final long MIN_ALLOCATION_SIZE = 256;
+
+    protected final VulkanContext context;
+    protected final long blockSize;
+    protected final long dedicatedThreshold;
+    protected final Map<PoolKey, List<MemoryBlock>> pools = new HashMap<>();
+    protected final List<Allocation> dedicatedAllocations = new ArrayList<>();
+    protected int deviceAllocationCount;
+
+    public VulkanMemoryAllocator(VulkanContext context) {
+        this(context, DEFAULT_BLOCK_SIZE);
+    }
+
+    public VulkanMemoryAllocator(VulkanContext context, long blockSize) {
+        this.context = context;
+        this.blockSize = blockSize;
+        this.dedicatedThreshold = blockSize / 2;
+    }
+
+    public Allocation allocateBuffer(long buffer, int properties) {
+        return allocateBuffer(buffer, properties, 0);
+    }
+
+    public synchronized Allocation allocateBuffer(long buffer, int requiredProperties, int preferredProperties) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkMemoryRequirements memRequirements = VkMemoryRequirements.callocStack(stack);
+            vkGetBufferMemoryRequirements(context.getLogicalDevice().getDevice(), buffer, memRequirements);
+
+            Allocation allocation = allocate(memRequirements, requiredProperties, preferredProperties, true);
+            VulkanUtil.checkVulkanResult(vkBindBufferMemory(context.getLogicalDevice().getDevice(), buffer, allocation.memory(), allocation.offset()), "Unable to bind buffer memory");
+            return allocation;
+        }
+    }
+
+    public synchronized Allocation allocateImage(long image, int properties) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkMemoryRequirements memRequirements = VkMemoryRequirements.callocStack(stack);
+            vkGetImageMemoryRequirements(context.getLogicalDevice().getDevice(), image, memRequirements);
+
+            Allocation allocation = allocate(memRequirements, properties, 0, false);
+            VulkanUtil.checkVulkanResult(vkBindImageMemory(context.getLogicalDevice().getDevice(), image, allocation.memory(), allocation.offset()), "Unable to bind image memory");
+            return allocation;
+        }
+    }
+
+    public synchronized Allocation allocate(VkMemoryRequirements memRequirements, int requiredProperties, int preferredProperties, boolean linear) {
+        int memoryType = context.getPhysicalDevice().findMemoryType(memRequirements.memoryTypeBits(), requiredProperties, preferredProperties);
+
+        // Device allocations satisfy any resource alignment, so alignments larger than a block also go dedicated
+        if (memRequirements.size() > dedicatedThreshold || memRequirements.alignment() > blockSize) {
+            return allocateDedicated(memRequirements.size(), memoryType);
+        }
+
+        // Linear and optimal resources never share a block, so bufferImageGranularity can not be violated
+        List<MemoryBlock> blocks = pools.computeIfAbsent(new PoolKey(memoryType, linear), key -> new ArrayList<>());
+        for (MemoryBlock block : blocks) {
+            long offset = block.allocator().allocate(memRequirements.size(), memRequirements.alignment());
+            if (offset != BuddyAllocator.INVALID_OFFSET) {
+                return new Allocation(block.memory(), offset, memRequirements.size(), memoryType, block);
+            }
+        }
+
+        MemoryBlock block = new MemoryBlock(allocateDeviceMemory(blockSize, memoryType), memoryType, new BuddyAllocator(blockSize, MIN_ALLOCATION_SIZE));
+        long offset = block.allocator().allocate(memRequirements.size(), memRequirements.alignment());
+        if (offset == BuddyAllocator.INVALID_OFFSET) {
+            freeDeviceMemory(block.memory());
+            return allocateDedicated(memRequirements.size(), memoryType);
+        }
+        blocks.add(block);
+        return new Allocation(block.memory(), offset, memRequirements.size(), memoryType, block);
+    }
+
+    protected Allocation allocateDedicated(long size, int memoryType) {
+        Allocation allocation = new Allocation(allocateDeviceMemory(size, memoryType), 0, size, memoryType, null);
+        dedicatedAllocations.add(allocation);
+        return allocation;
+    }
+
+    public synchronized void free(Allocation allocation) {
+        if (allocation.block() == null) {
+            dedicatedAllocations.remove(allocation);
+            freeDeviceMemory(allocation.memory());
+            return;
+        }
+
+        MemoryBlock block = allocation.block();
+        block.allocator().free(allocation.offset());
+        if (block.allocator().isEmpty()) {
+            for (List<MemoryBlock> blocks : pools.values()) {
+                if (blocks.size() > 1 && blocks.remove(block)) {
+                    freeDeviceMemory(block.memory());
+                    break;
+                }
+            }
+        }
+    }
+
+    public synchronized long map(Allocation allocation) {
+        if (allocation.block() == null) {
+            return mapDeviceMemory(allocation.memory(), allocation.size());
+        }
+        return allocation.block().map(this) + allocation.offset();
+    }
+
+    public synchronized void unmap(Allocation allocation) {
+        if (allocation.block() == null) {
+            vkUnmapMemory(context.getLogicalDevice().getDevice(), allocation.memory());
+        }
+    }
+
+    protected long mapDeviceMemory(long memory, long size) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer pData = stack.mallocPointer(1);
+            VulkanUtil.checkVulkanResult(vkMapMemory(context.getLogicalDevice().getDevice(), memory, 0, size, 0, pData), "Unable to map device memory");
+            return pData.get(0);
+        }
+    }
+
+    protected long allocateDeviceMemory(long size, int memoryType) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkMemoryAllocateInfo allocInfo = VkMemoryAllocateInfo.callocStack(stack);
+            allocInfo.sType(VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO);
+            allocInfo.allocationSize(size);
+            allocInfo.memoryTypeIndex(memoryType);
+
+            LongBuffer pMemory = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkAllocateMemory(context.getLogicalDevice().getDevice(), allocInfo, null, pMemory), "Unable to allocate device memory");
+            deviceAllocationCount++;
+            return pMemory.get(0);
+        }
+    }
+
+    protected void freeDeviceMemory(long memory) {
+        vkFreeMemory(context.getLogicalDevice().getDevice(), memory, null);
+        deviceAllocationCount--;
+    }
+
+    public synchronized int getDeviceAllocationCount() {
+        return deviceAllocationCount;
+    }
+
+    public synchronized Stats getStats() {
+        long blockBytes = 0;
+        long usedBytes = 0;
+        long freeBytes = 0;
+        long largestFreeBlock = 0;
+        int suballocations = 0;
+        for (List<MemoryBlock> blocks : pools.values()) {
+            for (MemoryBlock block : blocks) {
+                blockBytes += block.allocator().getSize();
+                usedBytes += block.allocator().getRequestedBytes();
+                freeBytes += block.allocator().getFreeBytes();
+                largestFreeBlock = Math.max(largestFreeBlock, block.allocator().getLargestFreeBlock());
+                suballocations += block.allocator().getAllocationCount();
+            }
+        }
+        long dedicatedBytes = dedicatedAllocations.stream().mapToLong(Allocation::size).sum();
+        return new Stats(deviceAllocationCount, suballocations, dedicatedAllocations.size(), blockBytes, usedBytes, freeBytes, largestFreeBlock, dedicatedBytes);
+    }
+
+    @Override
+    public synchronized void close() {
+        pools.values().forEach(blocks -> blocks.forEach(block -> freeDeviceMemory(block.memory())));
+        pools.clear();
+        dedicatedAllocations.forEach(allocation -> freeDeviceMemory(allocation.memory()));
+        dedicatedAllocations.clear();
+    }
+
+    protected record PoolKey(int memoryType, boolean linear) {
+    }
+
+    public static final class MemoryBlock {
+        private final long memory;
+        private final int memoryType;
+        private final BuddyAllocator allocator;
+        private long mappedAddress;
+
+        public MemoryBlock(long memory, int memoryType, BuddyAllocator allocator) {
+            this.memory = memory;
+            this.memoryType = memoryType;
+            this.allocator = allocator;
+        }
+
+        // A VkDeviceMemory can only be mapped once, so the whole block stays mapped while any allocation needs it
+        private long map(VulkanMemoryAllocator memoryAllocator) {
+            if (mappedAddress == 0) {
+                mappedAddress = memoryAllocator.mapDeviceMemory(memory, VK_WHOLE_SIZE);
+            }
+            return mappedAddress;
+        }
+
+        public long memory() {
+            return memory;
+        }
+
+        public int memoryType() {
+            return memoryType;
+        }
+
+        public BuddyAllocator allocator() {
+            return allocator;
+        }
+    }
+
+    public record Allocation(long memory, long offset, long size, int memoryType, MemoryBlock block) {
+    }
+
+    public record Stats(int deviceAllocations, int suballocations, int dedicatedAllocations, long blockBytes, long usedBytes, long freeBytes, long largestFreeBlock, long dedicatedBytes) {
+        public double utilization() {
+            return blockBytes == 0 ? 0 : (double) usedBytes / blockBytes;
+        }
+
+        public double fragmentation() {
+            return freeBytes == 0 ? 0 : 1 - (double) largestFreeBlock / freeBytes;
+        }
+    }
+}
@@ -27,9 +27,12 @@ package com.oroarmor.vulkan.context;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
@@ -41,15 +44,27 @@ import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanPhysicalDevice {
     public static final Set<String> DEVICE_EXTENSIONS = Set.of(VK_KHR_SWAPCHAIN_EXTENSION_NAME);
+    public static final long REBAR_HEAP_THRESHOLD = 256 * 1024 * 1024;
 
     protected final VulkanContext context;
     protected final VkPhysicalDevice physicalDevice;
     protected SwapChainSupportDetails swapChainSupport;
     protected QueueFamilyIndices queueFamilyIndices;
 
+    protected final VkPhysicalDeviceProperties properties;
+    protected final VkPhysicalDeviceFeatures features;
+    protected final VkPhysicalDeviceMemoryProperties memoryProperties;
+    protected final Map<MemoryTypeQuery, Integer> memoryTypeCache = new ConcurrentHashMap<>();
+
     public VulkanPhysicalDevice(VulkanContext context) {
         this.context = context;
         physicalDevice = pickPhysicalDevice();
+        properties = VkPhysicalDeviceProperties.create();
+        vkGetPhysicalDeviceProperties(physicalDevice, properties);
+        features = VkPhysicalDeviceFeatures.create();
+        vkGetPhysicalDeviceFeatures(physicalDevice, features);
+        memoryProperties = VkPhysicalDeviceMemoryProperties.create();
+        vkGetPhysicalDeviceMemoryProperties(physicalDevice, memoryProperties);
     }
 
     private VkPhysicalDevice pickPhysicalDevice() {
@@ -77,6 +92,10 @@ public class VulkanPhysicalDevice {
     }
 
     private boolean isDeviceSuitable(VkPhysicalDevice physicalDevice) {
+        if (context.isHeadless()) {
+            return findQueueFamilies(physicalDevice).isComplete();
+        }
+
         boolean extensionsSupported = checkDeviceExtensionSupport(physicalDevice);
         boolean swapChainAdequate = false;
 
@@ -91,6 +110,7 @@ public class VulkanPhysicalDevice {
     private QueueFamilyIndices findQueueFamilies(VkPhysicalDevice physicalDevice) {
         if (queueFamilyIndices == null) {
             queueFamilyIndices = new QueueFamilyIndices();
+            queueFamilyIndices.presentRequired = !context.isHeadless();
 
             try (MemoryStack stack = MemoryStack.stackPush()) {
                 IntBuffer queueFamilyCount = stack.ints(0);
@@ -106,6 +126,10 @@ public class VulkanPhysicalDevice {
                         queueFamilyIndices.graphicsFamily = i;
                     }
 
+                    if (!queueFamilyIndices.presentRequired) {
+                        continue;
+                    }
+
                     vkGetPhysicalDeviceSurfaceSupportKHR(physicalDevice, i, context.getSurface().getSurface(), presentSupport);
 
                     if (presentSupport.get(0) == VK_TRUE) {
@@ -171,6 +195,70 @@ public class VulkanPhysicalDevice {
         }
     }
 
+    public int findMemoryType(int typeFilter, int requiredProperties) {
+        return findMemoryType(typeFilter, requiredProperties, 0);
+    }
+
+    public int findMemoryType(int typeFilter, int requiredProperties, int preferredProperties) {
+        return memoryTypeCache.computeIfAbsent(new MemoryTypeQuery(typeFilter, requiredProperties, preferredProperties), this::lookupMemoryType);
+    }
+
+    private int lookupMemoryType(MemoryTypeQuery query) {
+        int fallback = -1;
+        for (int i = 0; i < memoryProperties.memoryTypeCount(); i++) {
+            int propertyFlags = memoryProperties.memoryTypes(i).propertyFlags();
+            if ((query.typeFilter() & (1 << i)) == 0 || (propertyFlags & query.requiredProperties()) != query.requiredProperties()) {
+                continue;
+            }
+            if ((propertyFlags & query.preferredProperties()) == query.preferredProperties()) {
+                return i;
+            }
+            if (fallback == -1) {
+                fallback = i;
+            }
+        }
+        if (fallback == -1) {
+            throw new RuntimeException("Failed to find suitable memory type");
+        }
+        return fallback;
+    }
+
+    public boolean hasHostVisibleDeviceMemory() {
+        if (properties.deviceType() == VK_PHYSICAL_DEVICE_TYPE_INTEGRATED_GPU || properties.deviceType() == VK_PHYSICAL_DEVICE_TYPE_CPU) {
+            return true;
+        }
+
+        // Without resizable BAR the host visible device local heap is a small 256 MiB window, which is too precious for regular buffers
+        int flags = VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT | VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT;
+        for (int i = 0; i < memoryProperties.memoryTypeCount(); i++) {
+            VkMemoryType memoryType = memoryProperties.memoryTypes(i);
+            if ((memoryType.propertyFlags() & flags) == flags && memoryProperties.memoryHeaps(memoryType.heapIndex()).size() > REBAR_HEAP_THRESHOLD) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public VkPhysicalDeviceProperties getProperties() {
+        return properties;
+    }
+
+    public VkPhysicalDeviceLimits getLimits() {
+        return properties.limits();
+    }
+
+    public VkPhysicalDeviceFeatures getFeatures() {
+        return features;
+    }
+
+    public VkPhysicalDeviceMemoryProperties getMemoryProperties() {
+        return memoryProperties;
+    }
+
+    public Set<String> getDeviceExtensions() {
+        return context.isHeadless() ? Set.of() : DEVICE_EXTENSIONS;
+    }
+
     public QueueFamilyIndices getQueueFamilyIndices() {
         return queueFamilyIndices;
     }
@@ -188,6 +276,9 @@ public class VulkanPhysicalDevice {
         return getSwapChainSupport(this.physicalDevice);
     }
 
+    protected record MemoryTypeQuery(int typeFilter, int requiredProperties, int preferredProperties) {
+    }
+
     public static class SwapChainSupportDetails {
         public VkSurfaceCapabilitiesKHR capabilities;
         public VkSurfaceFormatKHR.Buffer formats;
@@ -201,13 +292,14 @@ public class VulkanPhysicalDevice {
     public static class QueueFamilyIndices {
         public Integer graphicsFamily;
         public Integer presentFamily;
+        public boolean presentRequired = true;
 
         public boolean isComplete() {
-            return graphicsFamily != null && presentFamily != null;
+            return graphicsFamily != null && (presentFamily != null || !presentRequired);
         }
 
         public int[] unique() {
-            return IntStream.of(graphicsFamily, presentFamily).distinct().toArray();
+            return Stream.of(graphicsFamily, presentFamily).filter(Objects::nonNull).mapToInt(Integer::intValue).distinct().toArray();
         }
 
         public int[] array() {
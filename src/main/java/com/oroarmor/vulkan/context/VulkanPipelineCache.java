@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.*;
+
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VkPhysicalDeviceProperties;
+import org.lwjgl.vulkan.VkPipelineCacheCreateInfo;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanPipelineCache implements AutoCloseable {
+    public static final String CACHE_FILE_PROPERTY = "vulkan.pipelineCache";
+    protected static final int FILE_MAGIC = 0x4350564F;
+    protected static final int FILE_FORMAT = 1;
+    protected static final int FILE_HEADER_SIZE = 4 * Integer.BYTES + VK_UUID_SIZE + Long.BYTES;
+    protected static final int VK_HEADER_SIZE = 4 * Integer.BYTES + VK_UUID_SIZE;
+
+    protected final VulkanContext context;
+    protected final long pipelineCache;
+    protected Path file;
+    protected boolean loaded;
+
+    public VulkanPipelineCache(VulkanContext context) {
+        this(context, defaultFile());
+    }
+
+    public VulkanPipelineCache(VulkanContext context, Path file) {
+        this.context = context;
+        this.file = file;
+
+        ByteBuffer initialData = file != null ? readCacheData() : null;
+        loaded = initialData != null;
+        try {
+            pipelineCache = createPipelineCache(initialData);
+        } finally {
+            MemoryUtil.memFree(initialData);
+        }
+    }
+
+    // The cache only touches the disk when the application asks for it, either through the property or setFile
+    public static Path defaultFile() {
+        String file = System.getProperty(CACHE_FILE_PROPERTY);
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        return Paths.get(file);
+    }
+
+    public synchronized void setFile(Path file) {
+        this.file = file;
+        if (file == null) {
+            return;
+        }
+
+        ByteBuffer data = readCacheData();
+        if (data == null) {
+            return;
+        }
+        try {
+            // Pipelines created so far stay in the live cache, the file contents are merged in next to them
+            long fileCache = createPipelineCache(data);
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                VulkanUtil.checkVulkanResult(vkMergePipelineCaches(context.getLogicalDevice().getDevice(), pipelineCache, stack.longs(fileCache)), "Failed to merge pipeline cache " + file);
+            } finally {
+                vkDestroyPipelineCache(context.getLogicalDevice().getDevice(), fileCache, null);
+            }
+            loaded = true;
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    protected long createPipelineCache(ByteBuffer initialData) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkPipelineCacheCreateInfo cacheInfo = VkPipelineCacheCreateInfo.callocStack(stack);
+            cacheInfo.sType(VK_STRUCTURE_TYPE_PIPELINE_CACHE_CREATE_INFO);
+            cacheInfo.pInitialData(initialData);
+
+            LongBuffer pPipelineCache = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreatePipelineCache(context.getLogicalDevice().getDevice(), cacheInfo, null, pPipelineCache), "Failed to create pipeline cache");
+            return pPipelineCache.get(0);
+        }
+    }
+
+    protected ByteBuffer readCacheData() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            System.err.println("Unable to read pipeline cache " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        ByteBuffer contents = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        VkPhysicalDeviceProperties properties = context.getPhysicalDevice().getProperties();
+        if (bytes.length < FILE_HEADER_SIZE || contents.getInt() != FILE_MAGIC || contents.getInt() != FILE_FORMAT
+                || contents.getInt() != properties.vendorID() || contents.getInt() != properties.deviceID()
+                || contents.getInt() != properties.driverVersion() || !matchesUUID(contents, properties.pipelineCacheUUID())) {
+            return null;
+        }
+
+        long dataSize = contents.getLong();
+        if (dataSize < VK_HEADER_SIZE || dataSize != contents.remaining()) {
+            return null;
+        }
+
+        // The driver's own header has to agree with this device too, otherwise the data is not handed to it at all
+        ByteBuffer vulkanHeader = contents.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (vulkanHeader.getInt() < VK_HEADER_SIZE || vulkanHeader.getInt() != VK_PIPELINE_CACHE_HEADER_VERSION_ONE
+                || vulkanHeader.getInt() != properties.vendorID() || vulkanHeader.getInt() != properties.deviceID()
+                || !matchesUUID(vulkanHeader, properties.pipelineCacheUUID())) {
+            return null;
+        }
+
+        ByteBuffer data = MemoryUtil.memAlloc((int) dataSize);
+        data.put(contents).flip();
+        return data;
+    }
+
+    protected static boolean matchesUUID(ByteBuffer contents, ByteBuffer uuid) {
+        for (int i = 0; i < VK_UUID_SIZE; i++) {
+            if (contents.get() != uuid.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+
+        ByteBuffer data = getData();
+        try {
+            VkPhysicalDeviceProperties properties = context.getPhysicalDevice().getProperties();
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(FILE_MAGIC).putInt(FILE_FORMAT).putInt(properties.vendorID()).putInt(properties.deviceID()).putInt(properties.driverVersion());
+            for (int i = 0; i < VK_UUID_SIZE; i++) {
+                header.put(properties.pipelineCacheUUID().get(i));
+            }
+            header.putLong(data.remaining()).flip();
+
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (var channel = Files.newByteChannel(temp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to write pipeline cache " + file + ": " + e.getMessage());
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    public ByteBuffer getData() {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer pDataSize = stack.mallocPointer(1);
+            VulkanUtil.checkVulkanResult(vkGetPipelineCacheData(context.getLogicalDevice().getDevice(), pipelineCache, pDataSize, null), "Failed to query pipeline cache size");
+
+            ByteBuffer data = MemoryUtil.memAlloc((int) pDataSize.get(0));
+            VulkanUtil.checkVulkanResult(vkGetPipelineCacheData(context.getLogicalDevice().getDevice(), pipelineCache, pDataSize, data), "Failed to read pipeline cache");
+            data.limit((int) pDataSize.get(0));
+            return data;
+        }
+    }
+
+    public long getPipelineCache() {
+        return pipelineCache;
+    }
+
+    public synchronized Path getFile() {
+        return file;
+    }
+
+    public synchronized boolean wasLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public void close() {
+        save();
+        vkDestroyPipelineCache(context.getLogicalDevice().getDevice(), pipelineCache, null);
+    }
+}
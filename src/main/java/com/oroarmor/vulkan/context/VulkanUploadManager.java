@@ -0,0 +1,362 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.context;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import com.oroarmor.vulkan.render.VulkanBuffer;
+import com.oroarmor.vulkan.render.VulkanCommandBuffer;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.*;
+
+import static com.oroarmor.vulkan.util.VulkanUtil.UINT64_MAX;
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanUploadManager implements AutoCloseable {
+    public static final long DEFAULT_STAGING_SIZE = 16 * 1024 * 1024;
+    public static final long COPY_ALIGNMENT = 16;
+
+    public static final int SOURCE_STAGES = VK_PIPELINE_STAGE_VERTEX_INPUT_BIT | VK_PIPELINE_STAGE_VERTEX_SHADER_BIT | VK_PIPELINE_STAGE_FRAGMENT_SHADER_BIT | VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT;
+    public static final int DESTINATION_STAGES = VK_PIPELINE_STAGE_VERTEX_INPUT_BIT | VK_PIPELINE_STAGE_VERTEX_SHADER_BIT | VK_PIPELINE_STAGE_FRAGMENT_SHADER_BIT | VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT;
+    public static final int DESTINATION_ACCESS = VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT | VK_ACCESS_INDEX_READ_BIT | VK_ACCESS_UNIFORM_READ_BIT | VK_ACCESS_SHADER_READ_BIT;
+
+    protected final VulkanContext context;
+    protected final long capacity;
+    protected final long stagingBuffer;
+    protected final long stagingMemory;
+    protected final long stagingAddress;
+    protected final VulkanCommandPool commandPool;
+
+    protected final Set<VulkanBuffer> dirtyBuffers = new LinkedHashSet<>();
+    protected final List<PendingCopy> pendingCopies = new ArrayList<>();
+    protected final ArrayDeque<UploadBatch> inFlightBatches = new ArrayDeque<>();
+    // A single waiter retires batches in submission order, so the ring tail only moves forward
+    protected final ExecutorService fenceWaiter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Upload Fence Waiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    protected CompletableFuture<Void> pendingFuture = new UploadFuture<>();
+    protected long pendingBytes;
+
+    protected long head;
+    protected long tail;
+    protected long used;
+
+    public VulkanUploadManager(VulkanContext context) {
+        this(context, DEFAULT_STAGING_SIZE);
+    }
+
+    public VulkanUploadManager(VulkanContext context, long capacity) {
+        this.context = context;
+        this.capacity = capacity;
+        this.commandPool = new VulkanCommandPool(context, VK_COMMAND_POOL_CREATE_TRANSIENT_BIT | VK_COMMAND_POOL_CREATE_RESET_COMMAND_BUFFER_BIT);
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferCreateInfo bufferInfo = VkBufferCreateInfo.callocStack(stack);
+            bufferInfo.sType(VK_STRUCTURE_TYPE_BUFFER_CREATE_INFO);
+            bufferInfo.size(capacity);
+            bufferInfo.usage(VK_BUFFER_USAGE_TRANSFER_SRC_BIT);
+            bufferInfo.sharingMode(VK_SHARING_MODE_EXCLUSIVE);
+
+            LongBuffer pBuffer = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateBuffer(context.getLogicalDevice().getDevice(), bufferInfo, null, pBuffer), "Unable to create staging ring buffer");
+            stagingBuffer = pBuffer.get(0);
+
+            VkMemoryRequirements memRequirements = VkMemoryRequirements.callocStack(stack);
+            vkGetBufferMemoryRequirements(context.getLogicalDevice().getDevice(), stagingBuffer, memRequirements);
+
+            VkMemoryAllocateInfo allocInfo = VkMemoryAllocateInfo.callocStack(stack);
+            allocInfo.sType(VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO);
+            allocInfo.allocationSize(memRequirements.size());
+            allocInfo.memoryTypeIndex(context.getPhysicalDevice().findMemoryType(memRequirements.memoryTypeBits(), VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT));
+
+            LongBuffer pMemory = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkAllocateMemory(context.getLogicalDevice().getDevice(), allocInfo, null, pMemory), "Unable to allocate staging ring memory");
+            stagingMemory = pMemory.get(0);
+            vkBindBufferMemory(context.getLogicalDevice().getDevice(), stagingBuffer, stagingMemory, 0);
+
+            PointerBuffer pData = stack.mallocPointer(1);
+            VulkanUtil.checkVulkanResult(vkMapMemory(context.getLogicalDevice().getDevice(), stagingMemory, 0, capacity, 0, pData), "Unable to map staging ring memory");
+            stagingAddress = pData.get(0);
+        }
+    }
+
+    public synchronized CompletableFuture<Void> upload(long dstBuffer, long dstOffset, ByteBuffer data) {
+        return upload(dstBuffer, dstOffset, MemoryUtil.memAddress(data), data.remaining());
+    }
+
+    public synchronized CompletableFuture<Void> upload(long dstBuffer, long dstOffset, long srcAddress, long size) {
+        CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+        long maxChunkSize = capacity & -COPY_ALIGNMENT;
+        for (long offset = 0; offset < size; offset += maxChunkSize) {
+            long chunkSize = Math.min(maxChunkSize, size - offset);
+            long stagingOffset = allocate(chunkSize);
+            MemoryUtil.memCopy(srcAddress + offset, stagingAddress + stagingOffset, chunkSize);
+            pendingCopies.add(new PendingCopy(stagingOffset, dstBuffer, dstOffset + offset, chunkSize));
+            future = pendingFuture;
+        }
+        return future;
+    }
+
+    public synchronized CompletableFuture<Void> upload(long dstBuffer, long dstOffset, long size, Consumer<ByteBuffer> writer) {
+        if (size > (capacity & -COPY_ALIGNMENT)) {
+            ByteBuffer data = MemoryUtil.memAlloc(Math.toIntExact(size));
+            try {
+                writer.accept(data);
+                return upload(dstBuffer, dstOffset, MemoryUtil.memAddress(data), size);
+            } finally {
+                MemoryUtil.memFree(data);
+            }
+        }
+
+        long stagingOffset = allocate(size);
+        writer.accept(MemoryUtil.memByteBuffer(stagingAddress + stagingOffset, Math.toIntExact(size)));
+        pendingCopies.add(new PendingCopy(stagingOffset, dstBuffer, dstOffset, size));
+        return pendingFuture;
+    }
+
+    protected long allocate(long size) {
+        long alignedSize = (size + COPY_ALIGNMENT - 1) & -COPY_ALIGNMENT;
+        while (true) {
+            if (used == 0) {
+                head = tail = 0;
+            }
+
+            if (head > tail || used == 0) {
+                if (capacity - head >= alignedSize) {
+                    return reserve(head, alignedSize, alignedSize);
+                }
+                if (tail >= alignedSize) {
+                    return reserve(0, alignedSize, capacity - head + alignedSize);
+                }
+            } else if (tail - head >= alignedSize) {
+                return reserve(head, alignedSize, alignedSize);
+            }
+
+            if (!pendingCopies.isEmpty()) {
+                submitPendingCopies();
+            }
+            awaitOldestBatch();
+        }
+    }
+
+    private long reserve(long offset, long alignedSize, long consumed) {
+        head = offset + alignedSize;
+        used += consumed;
+        pendingBytes += consumed;
+        return offset;
+    }
+
+    public synchronized void scheduleFlush(VulkanBuffer buffer) {
+        dirtyBuffers.add(buffer);
+    }
+
+    public synchronized void cancelFlush(VulkanBuffer buffer) {
+        dirtyBuffers.remove(buffer);
+    }
+
+    public CompletableFuture<Void> flush() {
+        List<VulkanBuffer> buffers;
+        synchronized (this) {
+            buffers = new ArrayList<>(dirtyBuffers);
+            dirtyBuffers.clear();
+        }
+        // Buffers lock themselves before uploading, so they are flushed without holding this lock
+        buffers.forEach(VulkanBuffer::flushDirtyRanges);
+        return submitPendingCopies();
+    }
+
+    protected synchronized CompletableFuture<Void> submitPendingCopies() {
+        if (pendingCopies.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VulkanCommandBuffer commandBuffer = new VulkanCommandBuffer(context, commandPool);
+            VkCommandBuffer buffer = commandBuffer.startRecording(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+
+            // Frames already submitted may still read the destinations, so the copies wait for those reads to finish
+            vkCmdPipelineBarrier(buffer, SOURCE_STAGES, VK_PIPELINE_STAGE_TRANSFER_BIT, 0, null, null, null);
+
+            Map<Long, List<PendingCopy>> copiesByBuffer = new LinkedHashMap<>();
+            pendingCopies.forEach(copy -> copiesByBuffer.computeIfAbsent(copy.dstBuffer(), key -> new ArrayList<>()).add(copy));
+
+            copiesByBuffer.forEach((dstBuffer, copies) -> {
+                VkBufferCopy.Buffer regions = VkBufferCopy.callocStack(copies.size(), stack);
+                for (int i = 0; i < copies.size(); i++) {
+                    PendingCopy copy = copies.get(i);
+                    regions.get(i).srcOffset(copy.srcOffset()).dstOffset(copy.dstOffset()).size(copy.size());
+                }
+                vkCmdCopyBuffer(buffer, stagingBuffer, dstBuffer, regions);
+            });
+
+            VkMemoryBarrier.Buffer barrier = VkMemoryBarrier.callocStack(1, stack);
+            barrier.sType(VK_STRUCTURE_TYPE_MEMORY_BARRIER);
+            barrier.srcAccessMask(VK_ACCESS_TRANSFER_WRITE_BIT);
+            barrier.dstAccessMask(DESTINATION_ACCESS);
+            vkCmdPipelineBarrier(buffer, VK_PIPELINE_STAGE_TRANSFER_BIT, DESTINATION_STAGES, 0, barrier, null, null);
+
+            commandBuffer.finishRecording();
+
+            VkFenceCreateInfo fenceInfo = VkFenceCreateInfo.callocStack(stack);
+            fenceInfo.sType(VK_STRUCTURE_TYPE_FENCE_CREATE_INFO);
+            LongBuffer pFence = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateFence(context.getLogicalDevice().getDevice(), fenceInfo, null, pFence), "Failed to create upload fence");
+
+            VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack);
+            submitInfo.sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
+            submitInfo.pCommandBuffers(stack.pointers(buffer));
+            VulkanUtil.checkVulkanResult(context.getLogicalDevice().queueSubmit(context.getLogicalDevice().getGraphicsQueue(), submitInfo, pFence.get(0)), "Failed to submit buffer uploads");
+
+            CompletableFuture<Void> future = pendingFuture;
+            UploadBatch batch = new UploadBatch(commandBuffer, pFence.get(0), head, pendingBytes, future);
+            inFlightBatches.add(batch);
+            fenceWaiter.execute(() -> retire(batch));
+
+            pendingCopies.clear();
+            pendingBytes = 0;
+            pendingFuture = new UploadFuture<>();
+            return future;
+        }
+    }
+
+    public void waitIdle() {
+        flush();
+        synchronized (this) {
+            while (!inFlightBatches.isEmpty()) {
+                awaitOldestBatch();
+            }
+        }
+    }
+
+    protected synchronized void awaitOldestBatch() {
+        UploadBatch batch = inFlightBatches.peek();
+        if (batch == null) {
+            throw new IllegalStateException("Staging ring exhausted with no uploads in flight");
+        }
+        try {
+            while (inFlightBatches.peek() == batch) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for buffer uploads", e);
+        }
+    }
+
+    protected void retire(UploadBatch batch) {
+        RuntimeException error = null;
+        try {
+            VulkanUtil.checkVulkanResult(vkWaitForFences(context.getLogicalDevice().getDevice(), batch.fence(), true, UINT64_MAX), "Failed to wait for buffer uploads");
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            vkDestroyFence(context.getLogicalDevice().getDevice(), batch.fence(), null);
+            batch.commandBuffer().close();
+            inFlightBatches.poll();
+            tail = batch.end();
+            used -= batch.bytes();
+            notifyAll();
+        }
+        if (error != null) {
+            batch.future().completeExceptionally(error);
+            return;
+        }
+        batch.future().complete(null);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() {
+        waitIdle();
+        fenceWaiter.shutdown();
+        vkUnmapMemory(context.getLogicalDevice().getDevice(), stagingMemory);
+        vkDestroyBuffer(context.getLogicalDevice().getDevice(), stagingBuffer, null);
+        vkFreeMemory(context.getLogicalDevice().getDevice(), stagingMemory, null);
+        commandPool.close();
+    }
+
+    // Copies are batched until the next flush, so waiting on an upload submits the batch it belongs to
+    protected class UploadFuture<T> extends CompletableFuture<T> {
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new UploadFuture<>();
+        }
+
+        @Override
+        public T join() {
+            submitIfPending();
+            return super.join();
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            submitIfPending();
+            return super.get();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            submitIfPending();
+            return super.get(timeout, unit);
+        }
+
+        private void submitIfPending() {
+            if (!isDone()) {
+                flush();
+            }
+        }
+    }
+
+    protected record PendingCopy(long srcOffset, long dstBuffer, long dstOffset, long size) {
+    }
+
+    protected record UploadBatch(VulkanCommandBuffer commandBuffer, long fence, long end, long bytes, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.*;
+
+import static org.lwjgl.vulkan.KHRMaintenance1.VK_ERROR_OUT_OF_POOL_MEMORY_KHR;
+import static org.lwjgl.vulkan.VK10.*;
+
+public class DescriptorAllocator implements AutoCloseable {
+    public static final int INITIAL_POOL_SETS = 128;
+    public static final int MAX_POOL_SETS = 4096;
+    protected static final PoolRatio[] POOL_RATIOS = {
+            new PoolRatio(DescriptorBinding.DescriptorType.UNIFORM_BUFFER, 2),
+            new PoolRatio(DescriptorBinding.DescriptorType.UNIFORM_BUFFER_DYNAMIC, 1),
+            new PoolRatio(DescriptorBinding.DescriptorType.STORAGE_BUFFER, 2),
+            new PoolRatio(DescriptorBinding.DescriptorType.STORAGE_BUFFER_DYNAMIC, 1),
+            new PoolRatio(DescriptorBinding.DescriptorType.COMBINED_IMAGE_SAMPLER, 2),
+            new PoolRatio(DescriptorBinding.DescriptorType.SAMPLED_IMAGE, 1),
+            new PoolRatio(DescriptorBinding.DescriptorType.STORAGE_IMAGE, 1),
+            new PoolRatio(DescriptorBinding.DescriptorType.SAMPLER, 1)
+    };
+
+    protected final VulkanContext context;
+    protected final List<Long> pools = new ArrayList<>();
+    protected final Map<DescriptorSetKey, Long> descriptorSets = new HashMap<>();
+    protected int currentPool;
+    protected int nextPoolSets = INITIAL_POOL_SETS;
+    protected long allocations;
+    protected long allocationsAtReset;
+    protected long cacheHits;
+
+    public DescriptorAllocator(VulkanContext context) {
+        this.context = context;
+    }
+
+    // Sets are immutable once written, so a set with the same layout and contents is reused until the pools are reset at the next frame start
+    public synchronized long getDescriptorSet(long layout, List<DescriptorWrite> writes) {
+        List<DescriptorWrite> frameWrites = new ArrayList<>(writes.size());
+        for (DescriptorWrite write : writes) {
+            frameWrites.add(write.atCurrentFrame());
+        }
+        DescriptorSetKey key = new DescriptorSetKey(layout, List.copyOf(frameWrites));
+        Long cached = descriptorSets.get(key);
+        if (cached != null) {
+            cacheHits++;
+            return cached;
+        }
+
+        long descriptorSet = allocate(layout);
+        write(descriptorSet, frameWrites);
+        descriptorSets.put(key, descriptorSet);
+        return descriptorSet;
+    }
+
+    public synchronized long allocate(long layout) {
+        if (pools.isEmpty()) {
+            pools.add(createPool());
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkDescriptorSetAllocateInfo allocateInfo = VkDescriptorSetAllocateInfo.callocStack(stack);
+            allocateInfo.sType(VK_STRUCTURE_TYPE_DESCRIPTOR_SET_ALLOCATE_INFO);
+            allocateInfo.pSetLayouts(stack.longs(layout));
+
+            LongBuffer pDescriptorSet = stack.mallocLong(1);
+            boolean freshPool = false;
+            while (true) {
+                allocateInfo.descriptorPool(pools.get(currentPool));
+                int result = vkAllocateDescriptorSets(context.getLogicalDevice().getDevice(), allocateInfo, pDescriptorSet);
+                if (result == VK_SUCCESS) {
+                    allocations++;
+                    return pDescriptorSet.get(0);
+                }
+                if (result != VK_ERROR_OUT_OF_POOL_MEMORY_KHR && result != VK_ERROR_FRAGMENTED_POOL) {
+                    VulkanUtil.checkVulkanResult(result, "Failed to allocate descriptor set");
+                }
+                if (freshPool) {
+                    throw new RuntimeException("Descriptor set layout does not fit in an empty descriptor pool");
+                }
+
+                currentPool++;
+                if (currentPool == pools.size()) {
+                    pools.add(createPool());
+                    freshPool = true;
+                }
+            }
+        }
+    }
+
+    protected void write(long descriptorSet, List<DescriptorWrite> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkWriteDescriptorSet.Buffer descriptorWrites = VkWriteDescriptorSet.callocStack(writes.size(), stack);
+            for (int i = 0; i < writes.size(); i++) {
+                DescriptorWrite write = writes.get(i);
+                VkDescriptorBufferInfo.Buffer bufferInfo = VkDescriptorBufferInfo.callocStack(1, stack)
+                        .buffer(write.buffer().getBufferData().bufferHandle())
+                        .offset(write.offset())
+                        .range(write.range());
+
+                descriptorWrites.get(i)
+                        .sType(VK_STRUCTURE_TYPE_WRITE_DESCRIPTOR_SET)
+                        .dstSet(descriptorSet)
+                        .dstBinding(write.binding())
+                        .dstArrayElement(0)
+                        .descriptorType(write.type().getVkDescriptorType())
+                        .descriptorCount(1)
+                        .pBufferInfo(bufferInfo);
+            }
+            vkUpdateDescriptorSets(context.getLogicalDevice().getDevice(), descriptorWrites, null);
+        }
+    }
+
+    protected long createPool() {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkDescriptorPoolSize.Buffer poolSizes = VkDescriptorPoolSize.callocStack(POOL_RATIOS.length, stack);
+            for (int i = 0; i < POOL_RATIOS.length; i++) {
+                poolSizes.get(i)
+                        .type(POOL_RATIOS[i].type().getVkDescriptorType())
+                        .descriptorCount(POOL_RATIOS[i].perSet() * nextPoolSets);
+            }
+
+            VkDescriptorPoolCreateInfo poolInfo = VkDescriptorPoolCreateInfo.callocStack(stack);
+            poolInfo.sType(VK_STRUCTURE_TYPE_DESCRIPTOR_POOL_CREATE_INFO);
+            poolInfo.pPoolSizes(poolSizes);
+            poolInfo.maxSets(nextPoolSets);
+
+            LongBuffer pDescriptorPool = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateDescriptorPool(context.getLogicalDevice().getDevice(), poolInfo, null, pDescriptorPool), "Unable to create descriptor pool");
+            nextPoolSets = Math.min(nextPoolSets * 2, MAX_POOL_SETS);
+            return pDescriptorPool.get(0);
+        }
+    }
+
+    // Only call once the GPU is done with every set handed out since the last reset, returns whether any sets were released
+    public synchronized boolean beginFrame() {
+        if (allocations == allocationsAtReset) {
+            return false;
+        }
+        reset();
+        return true;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i <= currentPool && i < pools.size(); i++) {
+            VulkanUtil.checkVulkanResult(vkResetDescriptorPool(context.getLogicalDevice().getDevice(), pools.get(i), 0), "Failed to reset descriptor pool");
+        }
+        descriptorSets.clear();
+        currentPool = 0;
+        allocationsAtReset = allocations;
+    }
+
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized int getPoolCount() {
+        return pools.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        pools.forEach(pool -> vkDestroyDescriptorPool(context.getLogicalDevice().getDevice(), pool, null));
+        pools.clear();
+        descriptorSets.clear();
+    }
+
+    protected record DescriptorSetKey(long layout, List<DescriptorWrite> writes) {
+    }
+
+    protected record PoolRatio(DescriptorBinding.DescriptorType type, int perSet) {
+    }
+}
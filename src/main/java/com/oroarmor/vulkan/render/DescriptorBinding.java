@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public record DescriptorBinding(int binding, DescriptorType type, int count, int stageFlags) {
+    public DescriptorBinding(int binding, DescriptorType type, int stageFlags) {
+        this(binding, type, 1, stageFlags);
+    }
+
+    public enum DescriptorType {
+        SAMPLER(VK_DESCRIPTOR_TYPE_SAMPLER), COMBINED_IMAGE_SAMPLER(VK_DESCRIPTOR_TYPE_COMBINED_IMAGE_SAMPLER),
+        SAMPLED_IMAGE(VK_DESCRIPTOR_TYPE_SAMPLED_IMAGE), STORAGE_IMAGE(VK_DESCRIPTOR_TYPE_STORAGE_IMAGE),
+        UNIFORM_BUFFER(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER), STORAGE_BUFFER(VK_DESCRIPTOR_TYPE_STORAGE_BUFFER),
+        UNIFORM_BUFFER_DYNAMIC(VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC), STORAGE_BUFFER_DYNAMIC(VK_DESCRIPTOR_TYPE_STORAGE_BUFFER_DYNAMIC);
+
+        private final int vkDescriptorType;
+
+        DescriptorType(int vkDescriptorType) {
+            this.vkDescriptorType = vkDescriptorType;
+        }
+
+        public int getVkDescriptorType() {
+            return vkDescriptorType;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.nio.LongBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkDescriptorSetLayoutBinding;
+import org.lwjgl.vulkan.VkDescriptorSetLayoutCreateInfo;
+import org.lwjgl.vulkan.VkPipelineLayoutCreateInfo;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class DescriptorSetLayoutCache implements AutoCloseable {
+    protected final VulkanContext context;
+    protected final Map<List<DescriptorBinding>, Long> setLayouts = new ConcurrentHashMap<>();
+    protected final Map<PipelineLayout, Long> pipelineLayouts = new ConcurrentHashMap<>();
+
+    public DescriptorSetLayoutCache(VulkanContext context) {
+        this.context = context;
+    }
+
+    public long getSetLayout(List<DescriptorBinding> bindings) {
+        // Binding order does not change the layout, so lists are keyed in binding order
+        List<DescriptorBinding> key = bindings.stream().sorted(Comparator.comparingInt(DescriptorBinding::binding)).toList();
+        return setLayouts.computeIfAbsent(key, this::createSetLayout);
+    }
+
+    public long getPipelineLayout(PipelineLayout layout) {
+        return pipelineLayouts.computeIfAbsent(layout, this::createPipelineLayout);
+    }
+
+    protected long createSetLayout(List<DescriptorBinding> bindings) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkDescriptorSetLayoutBinding.Buffer layoutBindings = VkDescriptorSetLayoutBinding.callocStack(bindings.size(), stack);
+            for (int i = 0; i < bindings.size(); i++) {
+                DescriptorBinding binding = bindings.get(i);
+                layoutBindings.get(i)
+                        .binding(binding.binding())
+                        .descriptorType(binding.type().getVkDescriptorType())
+                        .descriptorCount(binding.count())
+                        .stageFlags(binding.stageFlags());
+            }
+
+            VkDescriptorSetLayoutCreateInfo layoutInfo = VkDescriptorSetLayoutCreateInfo.callocStack(stack);
+            layoutInfo.sType(VK_STRUCTURE_TYPE_DESCRIPTOR_SET_LAYOUT_CREATE_INFO);
+            layoutInfo.pBindings(layoutBindings);
+
+            LongBuffer pSetLayout = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateDescriptorSetLayout(context.getLogicalDevice().getDevice(), layoutInfo, null, pSetLayout), "Unable to create descriptor set layout");
+            return pSetLayout.get(0);
+        }
+    }
+
+    protected long createPipelineLayout(PipelineLayout layout) {
+        int maxPushConstantsSize = context.getPhysicalDevice().getLimits().maxPushConstantsSize();
+        for (PushConstantRange range : layout.pushConstants()) {
+            if (range.offset() + range.size() > maxPushConstantsSize) {
+                throw new IllegalArgumentException("Push constant range " + range + " exceeds the device limit of " + maxPushConstantsSize + " bytes");
+            }
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkPipelineLayoutCreateInfo pipelineLayoutInfo = layout.createPipelineLayout(this, stack);
+
+            LongBuffer pPipelineLayout = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreatePipelineLayout(context.getLogicalDevice().getDevice(), pipelineLayoutInfo, null, pPipelineLayout), "Unable to create pipeline layout");
+            return pPipelineLayout.get(0);
+        }
+    }
+
+    public int getSetLayoutCount() {
+        return setLayouts.size();
+    }
+
+    public int getPipelineLayoutCount() {
+        return pipelineLayouts.size();
+    }
+
+    @Override
+    public void close() {
+        pipelineLayouts.values().forEach(layout -> vkDestroyPipelineLayout(context.getLogicalDevice().getDevice(), layout, null));
+        pipelineLayouts.clear();
+        setLayouts.values().forEach(layout -> vkDestroyDescriptorSetLayout(context.getLogicalDevice().getDevice(), layout, null));
+        setLayouts.clear();
+    }
+}
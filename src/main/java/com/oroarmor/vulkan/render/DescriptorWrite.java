@@ -0,0 +1,37 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+public record DescriptorWrite(int binding, DescriptorBinding.DescriptorType type, VulkanBuffer buffer, long offset, long range) {
+    public DescriptorWrite(int binding, DescriptorBinding.DescriptorType type, VulkanBuffer buffer) {
+        this(binding, type, buffer, 0, buffer.getByteSize());
+    }
+
+    // Streaming buffers have one region per frame slot, so a write is pinned to the region of the slot it is recorded in
+    public DescriptorWrite atCurrentFrame() {
+        long frameOffset = buffer.getFrameOffset();
+        return frameOffset == 0 ? this : new DescriptorWrite(binding, type, buffer, offset + frameOffset, range);
+    }
+}
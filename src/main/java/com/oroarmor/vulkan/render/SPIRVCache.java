@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.lwjgl.Version;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.util.shaderc.Shaderc;
+
+import static org.lwjgl.util.shaderc.Shaderc.shaderc_get_spv_version;
+
+public class SPIRVCache {
+    public static final String CACHE_DIRECTORY_PROPERTY = "vulkan.shaderCache";
+    protected static final int CACHE_FORMAT = 1;
+    protected static final int SPIRV_MAGIC = 0x07230203;
+    protected static final String COMPILER_VERSION = compilerVersion();
+
+    protected final Path directory;
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+
+    public SPIRVCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // Nothing is written to disk unless the application asks for it, either through the property or setCache
+    public static SPIRVCache createDefault() {
+        String directory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+        return new SPIRVCache(Paths.get(directory));
+    }
+
+    // shaderc has no version query of its own, so the loaded native library is hashed to tell compiler builds apart
+    protected static String compilerVersion() {
+        String spirvVersion;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer version = stack.mallocInt(1);
+            IntBuffer revision = stack.mallocInt(1);
+            shaderc_get_spv_version(version, revision);
+            spirvVersion = "spv-" + Integer.toHexString(version.get(0)) + "-" + revision.get(0);
+        }
+
+        String library = Shaderc.getLibrary().getPath();
+        if (library != null) {
+            try {
+                return "shaderc-" + HexFormat.of().formatHex(createDigest().digest(Files.readAllBytes(Paths.get(library)))) + "/" + spirvVersion;
+            } catch (IOException e) {
+                System.err.println("Unable to hash shaderc library " + library + ", keying the shader cache on the LWJGL version: " + e.getMessage());
+            }
+        }
+        return Version.getVersion() + "/" + spirvVersion;
+    }
+
+    protected static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available for shader cache keys", e);
+        }
+    }
+
+    public String key(Shader.Stage stage, String source, String options) {
+        MessageDigest digest = createDigest();
+        digest.update((CACHE_FORMAT + "\0" + COMPILER_VERSION + "\0" + stage.name() + "\0" + options + "\0").getBytes(StandardCharsets.UTF_8));
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public ByteBuffer load(String key) {
+        Path file = directory.resolve(key + ".spv");
+        if (!Files.isRegularFile(file)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer bytecode = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (size < Integer.BYTES || size % Integer.BYTES != 0 || bytecode.getInt(0) != SPIRV_MAGIC) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return bytecode;
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    public void store(String key, ByteBuffer bytecode) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer source = bytecode.duplicate();
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            }
+            // Another process compiling the same shader writes identical bytes, so whichever move lands last is fine
+            Files.move(temp, directory.resolve(key + ".spv"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to write shader cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    public void clear() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.spv")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to clear shader cache " + directory, e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oroarmor.vulkan.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+
+public class SPIRVReflection {
+    protected static final int SPIRV_MAGIC = 0x07230203;
+    protected static final int HEADER_WORDS = 5;
+
+    protected static final int OP_TYPE_INT = 21;
+    protected static final int OP_TYPE_FLOAT = 22;
+    protected static final int OP_TYPE_VECTOR = 23;
+    protected static final int OP_TYPE_MATRIX = 24;
+    protected static final int OP_TYPE_ARRAY = 28;
+    protected static final int OP_TYPE_STRUCT = 30;
+    protected static final int OP_TYPE_POINTER = 32;
+    protected static final int OP_CONSTANT = 43;
+    protected static final int OP_VARIABLE = 59;
+    protected static final int OP_DECORATE = 71;
+    protected static final int OP_MEMBER_DECORATE = 72;
+
+    protected static final int DECORATION_ARRAY_STRIDE = 6;
+    protected static final int DECORATION_MATRIX_STRIDE = 7;
+    protected static final int DECORATION_OFFSET = 35;
+    protected static final int STORAGE_CLASS_PUSH_CONSTANT = 9;
+
+    protected final Map<Integer, int[]> types = new HashMap<>();
+    protected final Map<Integer, Integer> constants = new HashMap<>();
+    protected final Map<Integer, Integer> arrayStrides = new HashMap<>();
+    protected final Map<Integer, Map<Integer, Integer>> memberOffsets = new HashMap<>();
+    protected final Map<Integer, Map<Integer, Integer>> memberMatrixStrides = new HashMap<>();
+    protected final List<Integer> pushConstantPointers = new ArrayList<>();
+
+    protected SPIRVReflection(ByteBuffer bytecode) {
+        IntBuffer words = bytecode.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        if (words.remaining() < HEADER_WORDS || words.get(0) != SPIRV_MAGIC) {
+            throw new IllegalArgumentException("Bytecode is not little endian SPIR-V");
+        }
+
+        int position = HEADER_WORDS;
+        while (position < words.limit()) {
+            int wordCount = words.get(position) >>> 16;
+            int opcode = words.get(position) & 0xFFFF;
+            if (wordCount == 0 || position + wordCount > words.limit()) {
+                throw new IllegalArgumentException("Malformed SPIR-V instruction at word " + position);
+            }
+            int[] instruction = new int[wordCount];
+            words.get(position, instruction);
+            read(opcode, instruction);
+            position += wordCount;
+        }
+    }
+
+    // Returns the bytes of the stage's push constant block, or null when the stage declares none
+    public static PushConstantRange getPushConstantRange(ByteBuffer bytecode, int stageFlags) {
+        SPIRVReflection reflection = new SPIRVReflection(bytecode);
+        int start = Integer.MAX_VALUE;
+        int end = 0;
+        for (int pointer : reflection.pushConstantPointers) {
+            int block = reflection.types.get(pointer)[3];
+            start = Math.min(start, reflection.getFirstMemberOffset(block));
+            end = Math.max(end, reflection.getSize(block, 0));
+        }
+        if (end == 0) {
+            return null;
+        }
+        return new PushConstantRange(stageFlags, start, (end - start + 3) & -4);
+    }
+
+    protected void read(int opcode, int[] instruction) {
+        switch (opcode) {
+            case OP_TYPE_INT, OP_TYPE_FLOAT, OP_TYPE_VECTOR, OP_TYPE_MATRIX, OP_TYPE_ARRAY, OP_TYPE_STRUCT, OP_TYPE_POINTER -> types.put(instruction[1], instruction);
+            case OP_CONSTANT -> constants.put(instruction[2], instruction[3]);
+            case OP_VARIABLE -> {
+                if (instruction[3] == STORAGE_CLASS_PUSH_CONSTANT) {
+                    pushConstantPointers.add(instruction[1]);
+                }
+            }
+            case OP_DECORATE -> {
+                if (instruction[2] == DECORATION_ARRAY_STRIDE) {
+                    arrayStrides.put(instruction[1], instruction[3]);
+                }
+            }
+            case OP_MEMBER_DECORATE -> {
+                if (instruction[3] == DECORATION_OFFSET) {
+                    memberOffsets.computeIfAbsent(instruction[1], key -> new HashMap<>()).put(instruction[2], instruction[4]);
+                } else if (instruction[3] == DECORATION_MATRIX_STRIDE) {
+                    memberMatrixStrides.computeIfAbsent(instruction[1], key -> new HashMap<>()).put(instruction[2], instruction[4]);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    protected int getFirstMemberOffset(int struct) {
+        return memberOffsets.getOrDefault(struct, Map.of()).values().stream().mapToInt(Integer::intValue).min().orElse(0);
+    }
+
+    protected int getSize(int type, int matrixStride) {
+        int[] instruction = types.get(type);
+        if (instruction == null) {
+            throw new IllegalArgumentException("Push constant block uses an unsupported SPIR-V type %" + type);
+        }
+        return switch (instruction[0] & 0xFFFF) {
+            case OP_TYPE_INT, OP_TYPE_FLOAT -> instruction[2] / Byte.SIZE;
+            case OP_TYPE_VECTOR -> instruction[3] * getSize(instruction[2], 0);
+            case OP_TYPE_MATRIX -> instruction[3] * (matrixStride != 0 ? matrixStride : getSize(instruction[2], 0));
+            case OP_TYPE_ARRAY -> constants.get(instruction[3]) * arrayStrides.getOrDefault(type, getSize(instruction[2], matrixStride));
+            case OP_TYPE_STRUCT -> {
+                int size = 0;
+                Map<Integer, Integer> offsets = memberOffsets.getOrDefault(type, Map.of());
+                Map<Integer, Integer> strides = memberMatrixStrides.getOrDefault(type, Map.of());
+                for (int member = 0; member < instruction.length - 2; member++) {
+                    size = Math.max(size, offsets.getOrDefault(member, 0) + getSize(instruction[member + 2], strides.getOrDefault(member, 0)));
+                }
+                yield size;
+            }
+            default -> throw new IllegalArgumentException("Push constant block uses an unsupported SPIR-V type %" + type);
+        };
+    }
+}
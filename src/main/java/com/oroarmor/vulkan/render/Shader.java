@@ -31,6 +31,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
 import com.oroarmor.vulkan.util.Sizeof;
 import com.oroarmor.vulkan.util.VulkanUtil;
 import org.lwjgl.system.MemoryStack;
@@ -43,6 +45,8 @@ import static org.lwjgl.vulkan.VK10.*;
 
 public class Shader implements AutoCloseable {
     protected static final long compiler;
+    protected static final String COMPILE_OPTIONS = "entry=main;options=default";
+    protected static SPIRVCache cache = SPIRVCache.createDefault();
 
     static {
         compiler = shaderc_compiler_initialize();
@@ -57,30 +61,64 @@ public class Shader implements AutoCloseable {
 
     protected final String shaderFile;
     protected final VertexInputDescriptor inputTemplate;
+    protected final PipelineLayout pipelineLayout;
     protected final Map<Stage, String> stageToSource;
     protected final Map<Stage, SPIRV> stageToCompiled;
     protected final Map<Stage, Long> stageToModule;
 
     public Shader(VulkanContext context, VulkanRenderer renderer, String shaderFile, VertexInputDescriptor inputTemplate) {
+        this(context, renderer, shaderFile, inputTemplate, PipelineLayout.EMPTY);
+    }
+
+    public Shader(VulkanContext context, String shaderFile, PipelineLayout pipelineLayout) {
+        this(context, null, shaderFile, null, pipelineLayout);
+    }
+
+    public Shader(VulkanContext context, VulkanRenderer renderer, String shaderFile, VertexInputDescriptor inputTemplate, PipelineLayout pipelineLayout) {
         this.context = context;
         this.renderer = renderer;
         this.shaderFile = shaderFile;
         this.inputTemplate = inputTemplate;
+        this.pipelineLayout = pipelineLayout;
         stageToSource = new HashMap<>();
         stageToCompiled = new HashMap<>();
         stageToModule = new HashMap<>();
         this.recompile();
     }
 
+    protected Shader(VulkanContext context, VulkanRenderer renderer, String shaderFile, VertexInputDescriptor inputTemplate, PipelineLayout pipelineLayout, Map<Stage, String> sources, Map<Stage, SPIRV> compiled) {
+        this.context = context;
+        this.renderer = renderer;
+        this.shaderFile = shaderFile;
+        this.inputTemplate = inputTemplate;
+        this.pipelineLayout = pipelineLayout;
+        stageToSource = new HashMap<>(sources);
+        stageToCompiled = new HashMap<>(compiled);
+        stageToModule = new HashMap<>();
+        validatePushConstants(compiled);
+        convertToModules();
+    }
+
     protected void recompile() {
         stageToSource.clear();
         parseSourceFile();
         stageToCompiled.clear();
         compileStages();
+        validatePushConstants(stageToCompiled);
         stageToModule.clear();
         convertToModules();
     }
 
+    // A block the layout does not declare fails at pipeline creation or reads undefined values, so it is caught while the stages are known
+    protected void validatePushConstants(Map<Stage, SPIRV> stages) {
+        stages.forEach((stage, spirv) -> {
+            PushConstantRange used = SPIRVReflection.getPushConstantRange(spirv.bytecode(), stage.getVulkanShaderStage());
+            if (used != null && !pipelineLayout.coversPushConstants(used)) {
+                throw new IllegalArgumentException("Push constant block of " + stage + " in " + shaderFile + " spans bytes [" + used.offset() + ", " + (used.offset() + used.size()) + ") which are not declared for that stage by " + pipelineLayout.pushConstants());
+            }
+        });
+    }
+
     protected void convertToModules() {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             stageToCompiled.forEach((stage, spirv) -> {
@@ -96,23 +134,41 @@ public class Shader implements AutoCloseable {
     }
 
     protected void compileStages() {
-        stageToSource.forEach((stage, source) -> {
-            long result = shaderc_compile_into_spv(compiler, source, stage.getShaderc_kind(), shaderFile, "main", MemoryUtil.NULL);
+        stageToSource.forEach((stage, source) -> stageToCompiled.put(stage, compileStage(compiler, shaderFile, stage, source)));
+    }
 
-            if (result == MemoryUtil.NULL) {
-                throw new RuntimeException("Failed to compile shader " + shaderFile + " into SPIR-V");
-            }
+    protected static SPIRV compileStage(long compiler, String shaderFile, Stage stage, String source) {
+        String key = cache != null ? cache.key(stage, source, COMPILE_OPTIONS) : null;
+        ByteBuffer cached = key != null ? cache.load(key) : null;
+        if (cached != null) {
+            return new SPIRV(MemoryUtil.NULL, cached);
+        }
 
-            if (shaderc_result_get_compilation_status(result) != shaderc_compilation_status_success) {
-                throw new RuntimeException("Failed to compile shader " + shaderFile + " into SPIR-V:\n\t" + shaderc_result_get_error_message(result));
-            }
+        long result = shaderc_compile_into_spv(compiler, source, stage.getShaderc_kind(), shaderFile, "main", MemoryUtil.NULL);
 
-            stageToCompiled.put(stage, new SPIRV(result, shaderc_result_get_bytes(result)));
-        });
+        if (result == MemoryUtil.NULL) {
+            throw new RuntimeException("Failed to compile shader " + shaderFile + " into SPIR-V");
+        }
+
+        if (shaderc_result_get_compilation_status(result) != shaderc_compilation_status_success) {
+            String error = shaderc_result_get_error_message(result);
+            shaderc_result_release(result);
+            throw new RuntimeException("Failed to compile shader " + shaderFile + " into SPIR-V:\n\t" + error);
+        }
+
+        ByteBuffer bytecode = shaderc_result_get_bytes(result);
+        if (key != null) {
+            cache.store(key, bytecode);
+        }
+        return new SPIRV(result, bytecode);
     }
 
     protected void parseSourceFile() {
-        String source = getSource();
+        stageToSource.putAll(parseStages(getSource()));
+    }
+
+    protected static Map<Stage, String> parseStages(String source) {
+        Map<Stage, String> stages = new EnumMap<>(Stage.class);
         while (source.contains("#stage")) {
             int startStage = source.indexOf("#stage");
             int endStage = source.indexOf("#stage", startStage + 1) - 1;
@@ -128,12 +184,17 @@ public class Shader implements AutoCloseable {
             }
             String stageType = matcher.group(1);
             Stage stage = Stage.valueOf(stageType);
-            stageToSource.put(stage, stageSource.replace(matcher.group(), ""));
+            stages.put(stage, stageSource.replace(matcher.group(), ""));
             source = source.substring(endStage);
         }
+        return stages;
     }
 
     protected String getSource() {
+        return readSource(shaderFile);
+    }
+
+    protected static String readSource(String shaderFile) {
         try {
             byte[] bytes = Objects.requireNonNull(Shader.class.getClassLoader().getResourceAsStream(shaderFile)).readAllBytes(); //Files.readAllBytes(path);
             return new String(bytes);
@@ -142,11 +203,27 @@ public class Shader implements AutoCloseable {
         }
     }
 
+    public static SPIRVCache getCache() {
+        return cache;
+    }
+
+    public static void setCache(SPIRVCache cache) {
+        Shader.cache = cache;
+    }
+
     public Map<Stage, Long> getStageToModule() {
         return stageToModule;
     }
 
-    public VkPipelineShaderStageCreateInfo.Buffer createShaderStages(MemoryStack stack) {
+    public PipelineLayout getPipelineLayout() {
+        return pipelineLayout;
+    }
+
+    public String getShaderFile() {
+        return shaderFile;
+    }
+
+    public synchronized VkPipelineShaderStageCreateInfo.Buffer createShaderStages(MemoryStack stack) {
         VkPipelineShaderStageCreateInfo.Buffer shaderStages = VkPipelineShaderStageCreateInfo.callocStack(stageToModule.size(), stack);
         Iterator<Map.Entry<Stage, Long>> iterator = stageToModule.entrySet().iterator();
         for (int i = 0; i < stageToModule.size(); i++) {
@@ -156,6 +233,10 @@ public class Shader implements AutoCloseable {
         return shaderStages;
     }
 
+    public synchronized boolean isCompute() {
+        return stageToSource.containsKey(Stage.COMPUTE_SHADER);
+    }
+
     public VertexInputDescriptor getVertexInput() {
         return inputTemplate;
     }
@@ -167,16 +248,39 @@ public class Shader implements AutoCloseable {
         shaderStageInfo.pName(entrypoint);
     }
 
+    // Pipelines built from the old modules stay valid, callers invalidate them to pick up the new stages
+    public synchronized void reload(ShaderCompiler.CompiledShader compiled) {
+        validatePushConstants(compiled.stages());
+        releaseStages();
+        stageToSource.clear();
+        stageToSource.putAll(compiled.sources());
+        stageToCompiled.clear();
+        stageToCompiled.putAll(compiled.stages());
+        stageToModule.clear();
+        convertToModules();
+    }
+
+    protected void releaseStages() {
+        List<SPIRV> compiled = new ArrayList<>(stageToCompiled.values());
+        List<Long> modules = new ArrayList<>(stageToModule.values());
+        context.getDeletionQueue().defer(() -> {
+            compiled.forEach(SPIRV::free);
+            modules.forEach(l -> vkDestroyShaderModule(context.getLogicalDevice().getDevice(), l, null));
+        });
+    }
+
     @Override
-    public void close() {
-        stageToCompiled.values().forEach(SPIRV::free);
-        stageToModule.values().forEach(l -> vkDestroyShaderModule(context.getLogicalDevice().getDevice(), l, null));
+    public synchronized void close() {
+        releaseStages();
+        stageToCompiled.clear();
+        stageToModule.clear();
     }
 
     public enum Stage {
         VERTEX_SHADER(shaderc_glsl_vertex_shader, VK_SHADER_STAGE_VERTEX_BIT),
         GEOMETRY_SHADER(shaderc_glsl_geometry_shader, VK_SHADER_STAGE_GEOMETRY_BIT),
-        FRAGMENT_SHADER(shaderc_glsl_fragment_shader, VK_SHADER_STAGE_FRAGMENT_BIT);
+        FRAGMENT_SHADER(shaderc_glsl_fragment_shader, VK_SHADER_STAGE_FRAGMENT_BIT),
+        COMPUTE_SHADER(shaderc_glsl_compute_shader, VK_SHADER_STAGE_COMPUTE_BIT);
 
         private final int shaderc_kind;
         private final int vulkanShaderStage;
@@ -195,10 +299,12 @@ public class Shader implements AutoCloseable {
         }
     }
 
-    protected static record SPIRV(long handle, ByteBuffer bytecode) implements NativeResource {
+    public static record SPIRV(long handle, ByteBuffer bytecode) implements NativeResource {
         @Override
         public void free() {
-            shaderc_result_release(handle);
+            if (handle != MemoryUtil.NULL) {
+                shaderc_result_release(handle);
+            }
         }
     }
 
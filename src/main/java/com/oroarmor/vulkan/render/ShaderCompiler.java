@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import org.lwjgl.system.MemoryUtil;
+
+import static org.lwjgl.util.shaderc.Shaderc.*;
+
+public class ShaderCompiler implements AutoCloseable {
+    protected final ForkJoinPool pool;
+    protected final Queue<Long> compilers = new ConcurrentLinkedQueue<>();
+    protected final ThreadLocal<Long> workerCompiler = ThreadLocal.withInitial(this::createCompiler);
+
+    public ShaderCompiler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShaderCompiler(int workers) {
+        this.pool = new ForkJoinPool(workers);
+    }
+
+    protected long createCompiler() {
+        long compiler = shaderc_compiler_initialize();
+        if (compiler == MemoryUtil.NULL) {
+            throw new RuntimeException("Failed to create shader compiler");
+        }
+        compilers.add(compiler);
+        return compiler;
+    }
+
+    public CompletableFuture<CompiledShader> compile(String shaderFile) {
+        return CompletableFuture.supplyAsync(() -> Shader.readSource(shaderFile), pool).thenCompose(source -> compile(shaderFile, source));
+    }
+
+    public CompletableFuture<CompiledShader> compile(String shaderFile, String source) {
+        return CompletableFuture.supplyAsync(() -> Shader.parseStages(source), pool).thenCompose(sources -> {
+            Map<Shader.Stage, CompletableFuture<Shader.SPIRV>> stages = new EnumMap<>(Shader.Stage.class);
+            sources.forEach((stage, stageSource) -> stages.put(stage, CompletableFuture.supplyAsync(() -> Shader.compileStage(workerCompiler.get(), shaderFile, stage, stageSource), pool)));
+
+            return CompletableFuture.allOf(stages.values().toArray(CompletableFuture[]::new)).handle((ignored, error) -> {
+                Map<Shader.Stage, Shader.SPIRV> compiled = new EnumMap<>(Shader.Stage.class);
+                stages.forEach((stage, future) -> {
+                    if (!future.isCompletedExceptionally()) {
+                        compiled.put(stage, future.join());
+                    }
+                });
+                if (error != null) {
+                    compiled.values().forEach(Shader.SPIRV::free);
+                    throw error instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(error);
+                }
+                return new CompiledShader(shaderFile, sources, compiled);
+            });
+        });
+    }
+
+    public CompletableFuture<Shader> load(String shaderFile, VulkanContext context, VulkanRenderer renderer, Shader.VertexInputDescriptor inputTemplate) {
+        return load(compile(shaderFile), CompletableFuture.completedFuture(context), renderer, inputTemplate, PipelineLayout.EMPTY);
+    }
+
+    public CompletableFuture<Shader> load(CompletableFuture<CompiledShader> compiled, CompletableFuture<VulkanContext> context, VulkanRenderer renderer, Shader.VertexInputDescriptor inputTemplate) {
+        return load(compiled, context, renderer, inputTemplate, PipelineLayout.EMPTY);
+    }
+
+    public CompletableFuture<Shader> load(CompletableFuture<CompiledShader> compiled, CompletableFuture<VulkanContext> context, VulkanRenderer renderer, Shader.VertexInputDescriptor inputTemplate, PipelineLayout pipelineLayout) {
+        return compiled.thenCombine(context, (shader, vulkanContext) -> new Shader(vulkanContext, renderer, shader.shaderFile(), inputTemplate, pipelineLayout, shader.sources(), shader.stages()));
+    }
+
+    public CompletableFuture<Shader> load(CompletableFuture<CompiledShader> compiled, CompletableFuture<VulkanContext> context, PipelineLayout pipelineLayout) {
+        return load(compiled, context, null, null, pipelineLayout);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new RuntimeException("Timed out waiting for shader compilation to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for shader compilation to finish", e);
+        }
+        compilers.forEach(compiler -> shaderc_compiler_release(compiler));
+        compilers.clear();
+    }
+
+    public record CompiledShader(String shaderFile, Map<Shader.Stage, String> sources, Map<Shader.Stage, Shader.SPIRV> stages) {
+    }
+}
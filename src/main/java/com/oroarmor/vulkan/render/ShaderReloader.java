@@ -0,0 +1,216 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+public class ShaderReloader implements AutoCloseable {
+    public static final String SOURCE_DIRECTORY_PROPERTY = "vulkan.shaderHotReload";
+    protected static final long DEBOUNCE_MILLIS = 50;
+
+    protected final ShaderCompiler compiler;
+    protected final List<Path> sourceDirectories;
+    protected final WatchService watchService;
+    protected final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    protected final Map<String, List<Shader>> shaders = new ConcurrentHashMap<>();
+    protected final Queue<Reload> pendingReloads = new ConcurrentLinkedQueue<>();
+    protected final Thread watchThread;
+    protected volatile boolean running = true;
+
+    public ShaderReloader(ShaderCompiler compiler, Path... sourceDirectories) {
+        this.compiler = compiler;
+        this.sourceDirectories = List.of(sourceDirectories);
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : sourceDirectories) {
+                watchRecursively(directory);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to watch shader source directories " + this.sourceDirectories, e);
+        }
+
+        watchThread = new Thread(this::watch, "Shader Reload Watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    public static ShaderReloader createFromProperty(ShaderCompiler compiler) {
+        String directory = System.getProperty(SOURCE_DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+        return new ShaderReloader(compiler, Paths.get(directory));
+    }
+
+    protected void watchRecursively(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                watchedDirectories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    public void register(Shader shader) {
+        shaders.computeIfAbsent(shader.getShaderFile(), file -> new CopyOnWriteArrayList<>()).add(shader);
+    }
+
+    public void unregister(Shader shader) {
+        List<Shader> registered = shaders.get(shader.getShaderFile());
+        if (registered != null) {
+            registered.remove(shader);
+        }
+    }
+
+    protected void watch() {
+        while (running) {
+            Set<Path> changed = new HashSet<>();
+            try {
+                WatchKey key = watchService.take();
+                // Editors tend to write a file in several steps, so changes arriving close together are handled once
+                while (key != null) {
+                    collectChanges(key, changed);
+                    key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            changed.forEach(this::reload);
+        }
+    }
+
+    protected void collectChanges(WatchKey key, Set<Path> changed) {
+        Path directory = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(file)) {
+                try {
+                    watchRecursively(file);
+                } catch (IOException e) {
+                    System.err.println("Unable to watch shader directory " + file + ": " + e.getMessage());
+                }
+            } else if (Files.isRegularFile(file)) {
+                changed.add(file);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    protected void reload(Path file) {
+        String shaderFile = toShaderFile(file);
+        List<Shader> registered = shaderFile != null ? shaders.get(shaderFile) : null;
+        if (registered == null || registered.isEmpty()) {
+            return;
+        }
+
+        String source;
+        try {
+            source = Files.readString(file);
+        } catch (IOException e) {
+            System.err.println("Unable to read changed shader " + file + ": " + e.getMessage());
+            return;
+        }
+
+        // Every shader owns its compiled stages, so each registered instance gets its own compile
+        for (Shader shader : registered) {
+            compiler.compile(shaderFile, source).whenComplete((compiled, error) -> {
+                if (error != null) {
+                    System.err.println("Failed to reload shader " + shaderFile + ", keeping the previous version\n" + error.getMessage());
+                } else {
+                    pendingReloads.add(new Reload(shader, compiled));
+                }
+            });
+        }
+    }
+
+    protected String toShaderFile(Path file) {
+        for (Path directory : sourceDirectories) {
+            if (file.startsWith(directory)) {
+                return directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            }
+        }
+        return null;
+    }
+
+    public void applyPendingReloads(VulkanRenderer renderer) {
+        if (pendingReloads.isEmpty()) {
+            return;
+        }
+
+        Reload reload;
+        while ((reload = pendingReloads.poll()) != null) {
+            if (!shaders.getOrDefault(reload.shader().getShaderFile(), List.of()).contains(reload.shader())) {
+                reload.compiled().stages().values().forEach(Shader.SPIRV::free);
+                continue;
+            }
+            try {
+                reload.shader().reload(reload.compiled());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Failed to reload shader " + reload.shader().getShaderFile() + ", keeping the previous version\n" + e.getMessage());
+                reload.compiled().stages().values().forEach(Shader.SPIRV::free);
+                continue;
+            }
+            renderer.getGraphicsPipeline().invalidate(reload.shader());
+        }
+        renderer.invalidateRecordings();
+    }
+
+    public List<Path> getSourceDirectories() {
+        return sourceDirectories;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to close shader watch service", e);
+        }
+        watchThread.interrupt();
+        Reload reload;
+        while ((reload = pendingReloads.poll()) != null) {
+            reload.compiled().stages().values().forEach(Shader.SPIRV::free);
+        }
+    }
+
+    protected record Reload(Shader shader, ShaderCompiler.CompiledShader compiled) {
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import org.lwjgl.system.MemoryUtil;
+
+import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT;
+
+public class UniformBufferRing implements AutoCloseable {
+    public static final long DEFAULT_CAPACITY = 1024 * 1024;
+    protected static final BufferLayout LAYOUT = new BufferLayout().push(new BufferLayout.BufferElement(1, BufferLayout.BufferElement.CommonBufferElement.BYTE, false));
+
+    protected final VulkanContext context;
+    protected final long alignment;
+    protected final List<VulkanBuffer> retiredBuffers = new ArrayList<>();
+    protected VulkanBuffer buffer;
+    protected long head;
+    protected long highWaterMark;
+
+    public UniformBufferRing(VulkanContext context) {
+        this(context, DEFAULT_CAPACITY);
+    }
+
+    public UniformBufferRing(VulkanContext context, long capacity) {
+        this.context = context;
+        this.alignment = Math.max(1, context.getPhysicalDevice().getLimits().minUniformBufferOffsetAlignment());
+        this.buffer = createBuffer(capacity);
+    }
+
+    protected VulkanBuffer createBuffer(long capacity) {
+        return new VulkanBuffer(context, LAYOUT, capacity, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT, VulkanBuffer.BufferMode.MAPPED);
+    }
+
+    public synchronized Allocation allocate(int size) {
+        long offset = (head + alignment - 1) / alignment * alignment;
+        if (offset + size > buffer.getByteSize()) {
+            // Draws recorded earlier this frame still point at the old buffer, so it stays alive until the next reset
+            retiredBuffers.add(buffer);
+            buffer = createBuffer(Math.max(buffer.getByteSize() * 2, size));
+            offset = 0;
+        }
+        head = offset + size;
+        highWaterMark = Math.max(highWaterMark, head);
+        return new Allocation(buffer, Math.toIntExact(offset), MemoryUtil.memByteBuffer(buffer.getMappedAddress() + offset, size));
+    }
+
+    // Only call once the GPU is done with everything allocated since the last reset
+    public synchronized void reset() {
+        retiredBuffers.forEach(VulkanBuffer::close);
+        retiredBuffers.clear();
+        head = 0;
+    }
+
+    public long getAlignment() {
+        return alignment;
+    }
+
+    public synchronized long getCapacity() {
+        return buffer.getByteSize();
+    }
+
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    @Override
+    public synchronized void close() {
+        reset();
+        buffer.close();
+    }
+
+    public record Allocation(VulkanBuffer buffer, int offset, ByteBuffer data) {
+        public DescriptorWrite descriptorWrite(int binding) {
+            return new DescriptorWrite(binding, DescriptorBinding.DescriptorType.UNIFORM_BUFFER_DYNAMIC, buffer, 0, data.capacity());
+        }
+    }
+}
@@ -25,63 +25,112 @@
 package com.oroarmor.vulkan.render;
 
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import com.oroarmor.vulkan.util.VulkanUtil;
 import com.oroarmor.vulkan.context.VulkanContext;
-import org.lwjgl.PointerBuffer;
+import com.oroarmor.vulkan.context.VulkanMemoryAllocator;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.vulkan.*;
 
 import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanBuffer implements AutoCloseable {
+    public static final long DIRTY_RANGE_MERGE_GAP = 256;
+
     protected final BufferData buffer;
     protected final VulkanContext context;
     protected final BufferLayout layout;
-    protected final List<CopyableMemory> data;
+    protected final long byteSize;
     protected final int usage;
+    protected final BufferMode mode;
+    protected final int frameRegions;
+    protected final long frameRegionSize;
+    protected final long mappedAddress;
+    protected final long shadowAddress;
+    protected final TreeMap<Long, Long> dirtyRanges = new TreeMap<>();
+    protected CompletableFuture<Void> dirtyFuture;
+    protected CompletableFuture<Void> uploadFuture = CompletableFuture.completedFuture(null);
+    protected boolean initialized;
 
     public VulkanBuffer(VulkanContext context, BufferLayout layout, List<CopyableMemory> data, int usage) {
-        this.context = context;
-        this.layout = layout;
-        this.data = data;
-        this.usage = usage;
-        buffer = createBuffer();
+        this(context, layout, (long) layout.getStride() * data.size(), usage);
+        write(0, byteSize, dataBuffer -> data.forEach(datum -> datum.memCopy(dataBuffer)));
     }
 
-    private BufferData createBuffer() {
-        int size = layout.getStride() * data.size();
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            LongBuffer pBufferMemory = stack.longs(0);
-            LongBuffer pBuffer = stack.longs(0);
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, ByteBuffer data, int usage) {
+        this(context, layout, data.remaining(), usage);
+        update(data);
+    }
 
-            createVulkanBuffer(size, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT, pBuffer, pBufferMemory, stack);
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, FloatBuffer data, int usage) {
+        this(context, layout, (long) data.remaining() * Float.BYTES, usage);
+        update(data);
+    }
 
-            long stagingBuffer = pBuffer.get(0);
-            long stagingBufferMemory = pBufferMemory.get(0);
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, IntBuffer data, int usage) {
+        this(context, layout, (long) data.remaining() * Integer.BYTES, usage);
+        update(data);
+    }
 
-            PointerBuffer dataPointer = stack.mallocPointer(size);
-            vkMapMemory(context.getLogicalDevice().getDevice(), stagingBufferMemory, 0, size, 0, dataPointer);
-            ByteBuffer dataBuffer = dataPointer.getByteBuffer(0, size);
-            data.forEach(datum -> datum.memCopy(dataBuffer));
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, float[] data, int usage) {
+        this(context, layout, (long) data.length * Float.BYTES, usage);
+        update(data);
+    }
 
-            vkUnmapMemory(context.getLogicalDevice().getDevice(), stagingBufferMemory);
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, int[] data, int usage) {
+        this(context, layout, (long) data.length * Integer.BYTES, usage);
+        update(data);
+    }
 
-            createVulkanBuffer(size, VK_BUFFER_USAGE_TRANSFER_DST_BIT | usage, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT, pBuffer, pBufferMemory, stack);
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, long address, long byteSize, int usage) {
+        this(context, layout, byteSize, usage);
+        update(address, byteSize);
+    }
 
-            BufferData buffer = new BufferData(pBuffer.get(0), pBufferMemory.get(0));
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, long byteSize, int usage) {
+        this(context, layout, byteSize, usage, BufferMode.STATIC);
+    }
+
+    public VulkanBuffer(VulkanContext context, BufferLayout layout, long byteSize, int usage, BufferMode mode) {
+        this.context = context;
+        this.layout = layout;
+        this.byteSize = byteSize;
+        this.usage = usage;
+        this.mode = mode;
 
-            copyBuffer(stagingBuffer, buffer.bufferHandle, size);
-            vkDestroyBuffer(context.getLogicalDevice().getDevice(), stagingBuffer, null);
-            vkFreeMemory(context.getLogicalDevice().getDevice(), stagingBufferMemory, null);
+        // The CPU rewrites streaming buffers while earlier frames still read them, so every frame slot gets its own region
+        this.frameRegions = mode == BufferMode.STREAMING ? context.getSemaphoreHandler().getFramesInFlight() : 1;
+        this.frameRegionSize = frameRegions > 1 ? alignFrameRegion(byteSize) : byteSize;
 
-            return buffer;
+        boolean mapped = mode == BufferMode.STREAMING || mode == BufferMode.MAPPED || (mode == BufferMode.STATIC && context.getPhysicalDevice().hasHostVisibleDeviceMemory());
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            if (mapped) {
+                buffer = createVulkanBuffer(frameRegionSize * frameRegions, VK_BUFFER_USAGE_TRANSFER_DST_BIT | usage, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT, stack);
+                mappedAddress = context.getMemoryAllocator().map(buffer.allocation);
+            } else {
+                buffer = createVulkanBuffer(byteSize, VK_BUFFER_USAGE_TRANSFER_DST_BIT | usage, VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT, 0, stack);
+                mappedAddress = MemoryUtil.NULL;
+            }
         }
+        shadowAddress = mode == BufferMode.DYNAMIC ? MemoryUtil.nmemCallocChecked(1, byteSize) : MemoryUtil.NULL;
     }
 
-    protected void createVulkanBuffer(int size, int usage, int properties, LongBuffer pVertexBuffer, LongBuffer pVertexBufferMemory, MemoryStack stack) {
+    protected long alignFrameRegion(long size) {
+        VkPhysicalDeviceLimits limits = context.getPhysicalDevice().getLimits();
+        long alignment = Math.max(1, Math.max(limits.minUniformBufferOffsetAlignment(), limits.minStorageBufferOffsetAlignment()));
+        return (size + alignment - 1) / alignment * alignment;
+    }
+
+    protected BufferData createVulkanBuffer(long size, int usage, int requiredProperties, int preferredProperties, MemoryStack stack) {
         VkBufferCreateInfo bufferInfo = VkBufferCreateInfo.callocStack(stack);
 
         bufferInfo.sType(VK_STRUCTURE_TYPE_BUFFER_CREATE_INFO);
@@ -90,71 +139,221 @@ public class VulkanBuffer implements AutoCloseable {
         bufferInfo.usage(usage);
         bufferInfo.sharingMode(VK_SHARING_MODE_EXCLUSIVE);
 
-        VulkanUtil.checkVulkanResult(vkCreateBuffer(context.getLogicalDevice().getDevice(), bufferInfo, null, pVertexBuffer), "Unable to create buffer");
+        LongBuffer pBuffer = stack.longs(VK_NULL_HANDLE);
+        VulkanUtil.checkVulkanResult(vkCreateBuffer(context.getLogicalDevice().getDevice(), bufferInfo, null, pBuffer), "Unable to create buffer");
 
-        VkMemoryRequirements memRequirements = VkMemoryRequirements.callocStack(stack);
-        vkGetBufferMemoryRequirements(context.getLogicalDevice().getDevice(), pVertexBuffer.get(0), memRequirements);
+        return new BufferData(pBuffer.get(0), context.getMemoryAllocator().allocateBuffer(pBuffer.get(0), requiredProperties, preferredProperties));
+    }
 
-        VkMemoryAllocateInfo allocInfo = VkMemoryAllocateInfo.callocStack(stack);
-        allocInfo.sType(VK_STRUCTURE_TYPE_MEMORY_ALLOCATE_INFO);
-        allocInfo.allocationSize(memRequirements.size());
-        allocInfo.memoryTypeIndex(findMemoryType(memRequirements.memoryTypeBits(), properties, stack));
+    public CompletableFuture<Void> update(ByteBuffer data) {
+        return update(0, data);
+    }
 
-        VulkanUtil.checkVulkanResult(vkAllocateMemory(context.getLogicalDevice().getDevice(), allocInfo, null, pVertexBufferMemory), "Unable to allocate buffer memory");
+    public CompletableFuture<Void> update(FloatBuffer data) {
+        return update(0, data);
+    }
 
-        vkBindBufferMemory(context.getLogicalDevice().getDevice(), pVertexBuffer.get(0), pVertexBufferMemory.get(0), 0);
+    public CompletableFuture<Void> update(IntBuffer data) {
+        return update(0, data);
     }
 
-    protected void copyBuffer(long srcBuffer, long dstBuffer, int size) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            try (VulkanCommandBuffer commandBuffer = new VulkanCommandBuffer(context)) {
-                VkCommandBuffer buffer = commandBuffer.startRecording(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+    public CompletableFuture<Void> update(float[] data) {
+        return update(0, data);
+    }
 
-                VkBufferCopy.Buffer copyRegion = VkBufferCopy.callocStack(1, stack);
-                copyRegion.srcOffset(0).dstOffset(0).size(size);
+    public CompletableFuture<Void> update(int[] data) {
+        return update(0, data);
+    }
 
-                vkCmdCopyBuffer(buffer, srcBuffer, dstBuffer, copyRegion);
+    public CompletableFuture<Void> update(long address, long size) {
+        return update(0, address, size);
+    }
 
-                commandBuffer.finishRecording();
+    // Heap buffers have no native address, so they are copied in through the writer path instead
+    public CompletableFuture<Void> update(long offset, ByteBuffer data) {
+        if (!data.isDirect()) {
+            return write(offset, data.remaining(), dataBuffer -> dataBuffer.put(data.duplicate()));
+        }
+        return update(offset, MemoryUtil.memAddress(data), data.remaining());
+    }
 
-                VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack);
-                submitInfo.sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
-                PointerBuffer pCommandBuffers = stack.callocPointer(1);
-                pCommandBuffers.put(0, buffer.address());
-                submitInfo.pCommandBuffers(pCommandBuffers);
+    public CompletableFuture<Void> update(long offset, FloatBuffer data) {
+        if (!data.isDirect()) {
+            return write(offset, (long) data.remaining() * Float.BYTES, dataBuffer -> MemoryUtil.memFloatBuffer(MemoryUtil.memAddress(dataBuffer), data.remaining()).put(data.duplicate()));
+        }
+        return update(offset, MemoryUtil.memAddress(data), (long) data.remaining() * Float.BYTES);
+    }
 
-                vkQueueSubmit(context.getLogicalDevice().getGraphicsQueue(), submitInfo, VK_NULL_HANDLE);
-                vkQueueWaitIdle(context.getLogicalDevice().getGraphicsQueue());
-            }
+    public CompletableFuture<Void> update(long offset, IntBuffer data) {
+        if (!data.isDirect()) {
+            return write(offset, (long) data.remaining() * Integer.BYTES, dataBuffer -> MemoryUtil.memIntBuffer(MemoryUtil.memAddress(dataBuffer), data.remaining()).put(data.duplicate()));
         }
+        return update(offset, MemoryUtil.memAddress(data), (long) data.remaining() * Integer.BYTES);
     }
 
-    protected int findMemoryType(int typeFilter, int properties, MemoryStack stack) {
-        VkPhysicalDeviceMemoryProperties memProperties = VkPhysicalDeviceMemoryProperties.callocStack(stack);
-        vkGetPhysicalDeviceMemoryProperties(context.getPhysicalDevice().getPhysicalDevice(), memProperties);
+    public CompletableFuture<Void> update(long offset, float[] data) {
+        return write(offset, (long) data.length * Float.BYTES, dataBuffer -> MemoryUtil.memFloatBuffer(MemoryUtil.memAddress(dataBuffer), data.length).put(data));
+    }
 
-        for (int i = 0; i < memProperties.memoryTypeCount(); i++) {
-            if ((typeFilter & (1 << i)) != 0 && (memProperties.memoryTypes().get(i).propertyFlags() & properties) == properties) {
-                return i;
-            }
+    public CompletableFuture<Void> update(long offset, int[] data) {
+        return write(offset, (long) data.length * Integer.BYTES, dataBuffer -> MemoryUtil.memIntBuffer(MemoryUtil.memAddress(dataBuffer), data.length).put(data));
+    }
+
+    public synchronized CompletableFuture<Void> update(long offset, long address, long size) {
+        checkRange(offset, size);
+        if (shadowAddress != MemoryUtil.NULL) {
+            MemoryUtil.memCopy(address, shadowAddress + offset, size);
+            return markDirty(offset, size);
+        }
+        long hostAddress = getHostWriteAddress();
+        initialized = true;
+        if (hostAddress != MemoryUtil.NULL) {
+            MemoryUtil.memCopy(address, hostAddress + offset, size);
+            return uploadFuture;
+        }
+        return uploadFuture = context.getUploadManager().upload(buffer.bufferHandle, offset, address, size);
+    }
+
+    protected synchronized CompletableFuture<Void> write(long offset, long size, Consumer<ByteBuffer> writer) {
+        checkRange(offset, size);
+        if (shadowAddress != MemoryUtil.NULL) {
+            writer.accept(MemoryUtil.memByteBuffer(shadowAddress + offset, Math.toIntExact(size)));
+            return markDirty(offset, size);
+        }
+        long hostAddress = getHostWriteAddress();
+        initialized = true;
+        if (hostAddress != MemoryUtil.NULL) {
+            writer.accept(MemoryUtil.memByteBuffer(hostAddress + offset, Math.toIntExact(size)));
+            return uploadFuture;
+        }
+        return uploadFuture = context.getUploadManager().upload(buffer.bufferHandle, offset, size, writer);
+    }
+
+    // Only the first write of a static buffer goes through the mapping, later ones are staged so they are ordered after reads still in flight
+    protected long getHostWriteAddress() {
+        if (mode == BufferMode.STATIC && initialized) {
+            return MemoryUtil.NULL;
+        }
+        return getMappedAddress();
+    }
+
+    protected CompletableFuture<Void> markDirty(long offset, long size) {
+        long start = offset;
+        long end = offset + size;
+
+        Map.Entry<Long, Long> previous = dirtyRanges.floorEntry(start);
+        if (previous != null && previous.getValue() + DIRTY_RANGE_MERGE_GAP >= start) {
+            start = previous.getKey();
+            end = Math.max(end, previous.getValue());
+        }
+        Map.Entry<Long, Long> next;
+        while ((next = dirtyRanges.ceilingEntry(start)) != null && next.getKey() <= end + DIRTY_RANGE_MERGE_GAP) {
+            end = Math.max(end, next.getValue());
+            dirtyRanges.remove(next.getKey());
+        }
+        dirtyRanges.put(start, end);
+
+        if (dirtyFuture == null) {
+            dirtyFuture = new CompletableFuture<>();
+            context.getUploadManager().scheduleFlush(this);
+        }
+        return dirtyFuture;
+    }
+
+    public synchronized void flushDirtyRanges() {
+        if (dirtyRanges.isEmpty()) {
+            return;
+        }
+
+        CompletableFuture<Void> lastUpload = uploadFuture;
+        for (Map.Entry<Long, Long> range : dirtyRanges.entrySet()) {
+            lastUpload = context.getUploadManager().upload(buffer.bufferHandle, range.getKey(), shadowAddress + range.getKey(), range.getValue() - range.getKey());
+        }
+        dirtyRanges.clear();
+
+        CompletableFuture<Void> flushedFuture = dirtyFuture;
+        dirtyFuture = null;
+        lastUpload.thenRun(() -> flushedFuture.complete(null));
+        uploadFuture = flushedFuture;
+    }
+
+    protected void checkRange(long offset, long size) {
+        if (offset < 0 || size < 0 || offset + size > byteSize) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + size) + ") is outside of buffer of " + byteSize + " bytes");
         }
-        throw new RuntimeException("Failed to find suitable memory type");
     }
 
     @Override
-    public void close()  {
-        vkDestroyBuffer(context.getLogicalDevice().getDevice(), buffer.bufferHandle, null);
-        vkFreeMemory(context.getLogicalDevice().getDevice(), buffer.bufferMemory, null);
+    public synchronized void close()  {
+        if (shadowAddress != MemoryUtil.NULL) {
+            context.getUploadManager().cancelFlush(this);
+            // A flush that already took its snapshot finds nothing left to copy out of the freed shadow
+            dirtyRanges.clear();
+            if (dirtyFuture != null) {
+                dirtyFuture.cancel(false);
+                dirtyFuture = null;
+            }
+            MemoryUtil.nmemFree(shadowAddress);
+        }
+        if (!uploadFuture.isDone()) {
+            context.getUploadManager().flush();
+        }
+        BufferData data = buffer;
+        boolean mapped = mappedAddress != MemoryUtil.NULL;
+        context.getDeletionQueue().defer(() -> {
+            if (mapped) {
+                context.getMemoryAllocator().unmap(data.allocation);
+            }
+            vkDestroyBuffer(context.getLogicalDevice().getDevice(), data.bufferHandle, null);
+            context.getMemoryAllocator().free(data.allocation);
+        });
     }
 
     public BufferData getBufferData() {
         return buffer;
     }
 
+    public CompletableFuture<Void> getUploadFuture() {
+        return uploadFuture;
+    }
+
+    public BufferLayout getLayout() {
+        return layout;
+    }
+
+    public long getMappedAddress() {
+        return mappedAddress == MemoryUtil.NULL ? MemoryUtil.NULL : mappedAddress + getFrameOffset();
+    }
+
+    public long getFrameOffset() {
+        if (frameRegions == 1) {
+            return 0;
+        }
+        return context.getSemaphoreHandler().getCurrentFrame() % frameRegions * frameRegionSize;
+    }
+
+    public BufferMode getMode() {
+        return mode;
+    }
+
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    public int getElementCount() {
+        return Math.toIntExact(byteSize / layout.getStride());
+    }
+
     public int getSize() {
-        return data.size();
+        return getElementCount();
+    }
+
+    public static record BufferData(long bufferHandle, VulkanMemoryAllocator.Allocation allocation) {
     }
 
-    public static record BufferData(long bufferHandle, long bufferMemory) {
+    public enum BufferMode {
+        STATIC, DYNAMIC, STREAMING,
+        // A single persistently mapped copy for memory whose reuse the owner already fences, like per-frame rings and readback targets
+        MAPPED
     }
 }
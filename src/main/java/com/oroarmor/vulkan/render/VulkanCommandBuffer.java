@@ -27,6 +27,7 @@ package com.oroarmor.vulkan.render;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.oroarmor.vulkan.context.VulkanCommandPool;
 import com.oroarmor.vulkan.context.VulkanContext;
 import com.oroarmor.vulkan.util.VulkanUtil;
 import org.lwjgl.PointerBuffer;
@@ -34,30 +35,46 @@ import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VkCommandBuffer;
 import org.lwjgl.vulkan.VkCommandBufferAllocateInfo;
 import org.lwjgl.vulkan.VkCommandBufferBeginInfo;
+import org.lwjgl.vulkan.VkCommandBufferInheritanceInfo;
 
 import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanCommandBuffer implements AutoCloseable {
     protected final VulkanContext context;
+    protected final VulkanCommandPool commandPool;
     protected final VkCommandBuffer commandBuffer;
     protected boolean recorded = false;
 
     public VulkanCommandBuffer(VulkanContext context) {
+        this(context, context.getCommandPool());
+    }
+
+    public VulkanCommandBuffer(VulkanContext context, VulkanCommandPool commandPool) {
         this.context = context;
+        this.commandPool = commandPool;
         this.commandBuffer = createCommandBuffer();
     }
 
-    private VulkanCommandBuffer(VulkanContext context, VkCommandBuffer commandBuffer) {
+    private VulkanCommandBuffer(VulkanContext context, VulkanCommandPool commandPool, VkCommandBuffer commandBuffer) {
         this.context = context;
+        this.commandPool = commandPool;
         this.commandBuffer = commandBuffer;
     }
 
     public static List<VulkanCommandBuffer> createCommandBuffers(int count, VulkanContext context) {
+        return createCommandBuffers(count, context, context.getCommandPool());
+    }
+
+    public static List<VulkanCommandBuffer> createCommandBuffers(int count, VulkanContext context, VulkanCommandPool commandPool) {
+        return createCommandBuffers(count, context, commandPool, VK_COMMAND_BUFFER_LEVEL_PRIMARY);
+    }
+
+    public static List<VulkanCommandBuffer> createCommandBuffers(int count, VulkanContext context, VulkanCommandPool commandPool, int level) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             VkCommandBufferAllocateInfo allocInfo = VkCommandBufferAllocateInfo.callocStack(stack);
             allocInfo.sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO);
-            allocInfo.commandPool(context.getCommandPool().getCommandPool());
-            allocInfo.level(VK_COMMAND_BUFFER_LEVEL_PRIMARY);
+            allocInfo.commandPool(commandPool.getCommandPool());
+            allocInfo.level(level);
             allocInfo.commandBufferCount(count);
 
             PointerBuffer pCommandBuffer = stack.mallocPointer(count);
@@ -68,7 +85,7 @@ public class VulkanCommandBuffer implements AutoCloseable {
 
             for (int i = 0; i < count; i++) {
                 VkCommandBuffer vkCommandBuffer = new VkCommandBuffer(pCommandBuffer.get(i), context.getLogicalDevice().getDevice());
-                commandBuffers.add(new VulkanCommandBuffer(context, vkCommandBuffer));
+                commandBuffers.add(new VulkanCommandBuffer(context, commandPool, vkCommandBuffer));
             }
             return commandBuffers;
         }
@@ -78,7 +95,7 @@ public class VulkanCommandBuffer implements AutoCloseable {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             VkCommandBufferAllocateInfo allocInfo = VkCommandBufferAllocateInfo.callocStack(stack);
             allocInfo.sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_ALLOCATE_INFO);
-            allocInfo.commandPool(context.getCommandPool().getCommandPool());
+            allocInfo.commandPool(commandPool.getCommandPool());
             allocInfo.level(VK_COMMAND_BUFFER_LEVEL_PRIMARY);
             allocInfo.commandBufferCount(1);
 
@@ -90,12 +107,16 @@ public class VulkanCommandBuffer implements AutoCloseable {
     }
 
     public VkCommandBuffer startRecording(int flags) {
+        return startRecording(flags, null);
+    }
+
+    public VkCommandBuffer startRecording(int flags, VkCommandBufferInheritanceInfo inheritanceInfo) {
         assert !recorded : "Buffer has already been recorded.";
         try (MemoryStack stack = MemoryStack.stackPush()) {
             VkCommandBufferBeginInfo beginInfo = VkCommandBufferBeginInfo.callocStack(stack);
             beginInfo.sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_BEGIN_INFO);
             beginInfo.flags(flags); // Optional
-            beginInfo.pInheritanceInfo(null); // Optional
+            beginInfo.pInheritanceInfo(inheritanceInfo); // Only used by secondary command buffers
 
             VulkanUtil.checkVulkanResult(vkBeginCommandBuffer(commandBuffer, beginInfo), "Failed to begin recording command buffer");
 
@@ -108,8 +129,21 @@ public class VulkanCommandBuffer implements AutoCloseable {
         this.recorded = true;
     }
 
+    public void reset() {
+        VulkanUtil.checkVulkanResult(vkResetCommandBuffer(commandBuffer, 0), "Failed to reset command buffer.");
+        this.recorded = false;
+    }
+
+    public void markPoolReset() {
+        this.recorded = false;
+    }
+
+    public boolean isRecorded() {
+        return recorded;
+    }
+
     public void close() {
-        vkFreeCommandBuffers(context.getLogicalDevice().getDevice(), context.getCommandPool().getCommandPool(), commandBuffer);
+        vkFreeCommandBuffers(context.getLogicalDevice().getDevice(), commandPool.getCommandPool(), commandBuffer);
     }
 
     public VkCommandBuffer getCommandBuffer() {
@@ -0,0 +1,289 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.oroarmor.vulkan.context.VulkanCommandPool;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+import com.oroarmor.vulkan.render.pipeline.PushConstantWriter;
+import com.oroarmor.vulkan.render.pipeline.VulkanComputePipeline;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.*;
+
+import static com.oroarmor.vulkan.util.VulkanUtil.UINT64_MAX;
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanComputeDispatcher implements AutoCloseable {
+    public static final int STORAGE_BUFFER_USAGE = VK_BUFFER_USAGE_STORAGE_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_SRC_BIT;
+
+    public static final int SOURCE_STAGES = VK_PIPELINE_STAGE_VERTEX_INPUT_BIT | VK_PIPELINE_STAGE_VERTEX_SHADER_BIT | VK_PIPELINE_STAGE_FRAGMENT_SHADER_BIT | VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT | VK_PIPELINE_STAGE_TRANSFER_BIT;
+    public static final int DESTINATION_STAGES = VK_PIPELINE_STAGE_DRAW_INDIRECT_BIT | VK_PIPELINE_STAGE_VERTEX_INPUT_BIT | VK_PIPELINE_STAGE_VERTEX_SHADER_BIT | VK_PIPELINE_STAGE_FRAGMENT_SHADER_BIT | VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT | VK_PIPELINE_STAGE_TRANSFER_BIT | VK_PIPELINE_STAGE_HOST_BIT;
+    public static final int DESTINATION_ACCESS = VK_ACCESS_INDIRECT_COMMAND_READ_BIT | VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT | VK_ACCESS_INDEX_READ_BIT | VK_ACCESS_UNIFORM_READ_BIT | VK_ACCESS_SHADER_READ_BIT | VK_ACCESS_TRANSFER_READ_BIT | VK_ACCESS_HOST_READ_BIT;
+
+    protected final VulkanContext context;
+    protected final VulkanCommandPool commandPool;
+    // Each batch allocates its sets from its own allocator, which is reset and reused once the batch has retired
+    protected final ArrayDeque<DescriptorAllocator> freeDescriptorAllocators = new ArrayDeque<>();
+    protected final List<ComputeBatch> inFlightBatches = new ArrayList<>();
+    // A single waiter retires batches in submission order, which keeps the deletion queue serials monotonic
+    protected final ExecutorService fenceWaiter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Compute Fence Waiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    protected CompletableFuture<Void> lastSubmission = CompletableFuture.completedFuture(null);
+    protected long dispatches;
+
+    public VulkanComputeDispatcher(VulkanContext context) {
+        this.context = context;
+        this.commandPool = new VulkanCommandPool(context, VK_COMMAND_POOL_CREATE_TRANSIENT_BIT | VK_COMMAND_POOL_CREATE_RESET_COMMAND_BUFFER_BIT);
+    }
+
+    public static int groupCount(int invocations, int localSize) {
+        return (invocations + localSize - 1) / localSize;
+    }
+
+    public CompletableFuture<Void> dispatch(VulkanComputePipeline pipeline, List<DescriptorWrite> writes, int groupCountX) {
+        return dispatch(pipeline, writes, groupCountX, 1, 1);
+    }
+
+    public CompletableFuture<Void> dispatch(VulkanComputePipeline pipeline, List<DescriptorWrite> writes, int groupCountX, int groupCountY, int groupCountZ) {
+        return submit(recorder -> recorder.bindPipeline(pipeline)
+                .bindDescriptorSet(0, writes)
+                .dispatch(groupCountX, groupCountY, groupCountZ));
+    }
+
+    public synchronized CompletableFuture<Void> submit(Consumer<ComputeRecorder> recording) {
+        // Data uploaded through the staging ring has to be on the queue before the dispatches that read it
+        context.getUploadManager().flush();
+        DescriptorAllocator descriptorAllocator = freeDescriptorAllocators.isEmpty() ? new DescriptorAllocator(context) : freeDescriptorAllocators.poll();
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VulkanCommandBuffer commandBuffer = new VulkanCommandBuffer(context, commandPool);
+            VkCommandBuffer buffer = commandBuffer.startRecording(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+
+            // Earlier frames and dispatches may still be reading buffers this batch writes
+            vkCmdPipelineBarrier(buffer, SOURCE_STAGES, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT | VK_PIPELINE_STAGE_TRANSFER_BIT, 0, null, null, null);
+            recording.accept(new ComputeRecorder(commandBuffer, descriptorAllocator));
+
+            VkMemoryBarrier.Buffer barrier = VkMemoryBarrier.callocStack(1, stack);
+            barrier.sType(VK_STRUCTURE_TYPE_MEMORY_BARRIER);
+            barrier.srcAccessMask(VK_ACCESS_SHADER_WRITE_BIT | VK_ACCESS_TRANSFER_WRITE_BIT);
+            barrier.dstAccessMask(DESTINATION_ACCESS);
+            vkCmdPipelineBarrier(buffer, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT | VK_PIPELINE_STAGE_TRANSFER_BIT, DESTINATION_STAGES, 0, barrier, null, null);
+
+            commandBuffer.finishRecording();
+
+            VkFenceCreateInfo fenceInfo = VkFenceCreateInfo.callocStack(stack);
+            fenceInfo.sType(VK_STRUCTURE_TYPE_FENCE_CREATE_INFO);
+            LongBuffer pFence = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateFence(context.getLogicalDevice().getDevice(), fenceInfo, null, pFence), "Failed to create compute fence");
+
+            VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack);
+            submitInfo.sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
+            submitInfo.pCommandBuffers(stack.pointers(buffer));
+            long serial = context.getLogicalDevice().queueSubmitWithSerial(context.getLogicalDevice().getGraphicsQueue(), submitInfo, pFence.get(0), "Failed to submit compute dispatch");
+
+            ComputeBatch batch = new ComputeBatch(commandBuffer, descriptorAllocator, pFence.get(0), serial, new CompletableFuture<>());
+            inFlightBatches.add(batch);
+            fenceWaiter.execute(() -> retire(batch));
+            return lastSubmission = batch.future();
+        }
+    }
+
+    protected void retire(ComputeBatch batch) {
+        RuntimeException error = null;
+        try {
+            VulkanUtil.checkVulkanResult(vkWaitForFences(context.getLogicalDevice().getDevice(), batch.fence(), true, UINT64_MAX), "Failed to wait for compute dispatch");
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            vkDestroyFence(context.getLogicalDevice().getDevice(), batch.fence(), null);
+            batch.commandBuffer().close();
+            batch.descriptorAllocator().reset();
+            freeDescriptorAllocators.add(batch.descriptorAllocator());
+            inFlightBatches.remove(batch);
+        }
+        if (error != null) {
+            batch.future().completeExceptionally(error);
+            return;
+        }
+        context.getDeletionQueue().frameCompleted(batch.serial());
+        batch.future().complete(null);
+    }
+
+    public CompletableFuture<ByteBuffer> readback(VulkanBuffer buffer) {
+        return readback(buffer, 0, buffer.getByteSize());
+    }
+
+    // The returned buffer is a garbage collected direct copy, so it stays valid after the source buffer is written again or closed
+    public CompletableFuture<ByteBuffer> readback(VulkanBuffer buffer, long offset, long size) {
+        if (offset < 0 || size < 0 || offset + size > buffer.getByteSize()) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + size) + ") is outside of buffer of " + buffer.getByteSize() + " bytes");
+        }
+
+        long mappedAddress = buffer.getMappedAddress();
+        if (mappedAddress != MemoryUtil.NULL) {
+            return submit(recorder -> {
+            }).thenApply(v -> copyToHostBuffer(mappedAddress + offset, size));
+        }
+
+        VulkanBuffer readbackBuffer = new VulkanBuffer(context, buffer.getLayout(), size, VK_BUFFER_USAGE_TRANSFER_DST_BIT, VulkanBuffer.BufferMode.MAPPED);
+        return submit(recorder -> recorder.copyBuffer(buffer, offset, readbackBuffer, 0, size)).thenApply(v -> {
+            ByteBuffer data = copyToHostBuffer(readbackBuffer.getMappedAddress(), size);
+            readbackBuffer.close();
+            return data;
+        });
+    }
+
+    protected static ByteBuffer copyToHostBuffer(long address, long size) {
+        ByteBuffer data = BufferUtils.createByteBuffer(Math.toIntExact(size));
+        MemoryUtil.memCopy(address, MemoryUtil.memAddress(data), size);
+        return data;
+    }
+
+    public synchronized CompletableFuture<Void> getLastSubmission() {
+        return lastSubmission;
+    }
+
+    public void waitIdle() {
+        getLastSubmission().join();
+    }
+
+    public synchronized long getDispatches() {
+        return dispatches;
+    }
+
+    @Override
+    public void close() {
+        waitIdle();
+        fenceWaiter.shutdown();
+        synchronized (this) {
+            freeDescriptorAllocators.forEach(DescriptorAllocator::close);
+            freeDescriptorAllocators.clear();
+        }
+        commandPool.close();
+    }
+
+    public class ComputeRecorder {
+        protected final VulkanCommandBuffer commandBuffer;
+        protected final DescriptorAllocator descriptorAllocator;
+        protected VulkanComputePipeline pipeline;
+
+        protected ComputeRecorder(VulkanCommandBuffer commandBuffer, DescriptorAllocator descriptorAllocator) {
+            this.commandBuffer = commandBuffer;
+            this.descriptorAllocator = descriptorAllocator;
+        }
+
+        public ComputeRecorder bindPipeline(VulkanComputePipeline pipeline) {
+            this.pipeline = pipeline;
+            vkCmdBindPipeline(commandBuffer.getCommandBuffer(), VK_PIPELINE_BIND_POINT_COMPUTE, pipeline.getPipeline());
+            return this;
+        }
+
+        public ComputeRecorder bindDescriptorSet(int set, List<DescriptorWrite> writes, int... dynamicOffsets) {
+            long setLayout = context.getDescriptorSetLayoutCache().getSetLayout(getPipeline().getShader().getPipelineLayout().descriptorSets().get(set));
+            long descriptorSet = descriptorAllocator.getDescriptorSet(setLayout, writes);
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                vkCmdBindDescriptorSets(commandBuffer.getCommandBuffer(), VK_PIPELINE_BIND_POINT_COMPUTE, getPipeline().getLayout(), set, stack.longs(descriptorSet), dynamicOffsets.length > 0 ? stack.ints(dynamicOffsets) : null);
+            }
+            return this;
+        }
+
+        public <T> ComputeRecorder pushConstants(PushConstantRange range, T value, PushConstantWriter<T> writer) {
+            if (!getPipeline().getShader().getPipelineLayout().pushConstants().contains(range)) {
+                throw new IllegalArgumentException("Push constant range " + range + " is not declared by " + getPipeline().getShader().getShaderFile());
+            }
+
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                ByteBuffer data = stack.calloc(range.size());
+                writer.write(value, data);
+                vkCmdPushConstants(commandBuffer.getCommandBuffer(), getPipeline().getLayout(), range.stageFlags(), range.offset(), data);
+            }
+            return this;
+        }
+
+        public ComputeRecorder dispatch(int groupCountX, int groupCountY, int groupCountZ) {
+            vkCmdDispatch(commandBuffer.getCommandBuffer(), groupCountX, groupCountY, groupCountZ);
+            dispatches++;
+            return this;
+        }
+
+        // Makes the writes of earlier dispatches and copies in this batch visible to the ones recorded after it
+        public ComputeRecorder barrier() {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                VkMemoryBarrier.Buffer barrier = VkMemoryBarrier.callocStack(1, stack);
+                barrier.sType(VK_STRUCTURE_TYPE_MEMORY_BARRIER);
+                barrier.srcAccessMask(VK_ACCESS_SHADER_WRITE_BIT | VK_ACCESS_TRANSFER_WRITE_BIT);
+                barrier.dstAccessMask(VK_ACCESS_SHADER_READ_BIT | VK_ACCESS_SHADER_WRITE_BIT | VK_ACCESS_TRANSFER_READ_BIT | VK_ACCESS_TRANSFER_WRITE_BIT);
+                int stages = VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT | VK_PIPELINE_STAGE_TRANSFER_BIT;
+                vkCmdPipelineBarrier(commandBuffer.getCommandBuffer(), stages, stages, 0, barrier, null, null);
+            }
+            return this;
+        }
+
+        public ComputeRecorder copyBuffer(VulkanBuffer source, long sourceOffset, VulkanBuffer destination, long destinationOffset, long size) {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                VkBufferCopy.Buffer region = VkBufferCopy.callocStack(1, stack).srcOffset(source.getFrameOffset() + sourceOffset).dstOffset(destination.getFrameOffset() + destinationOffset).size(size);
+                vkCmdCopyBuffer(commandBuffer.getCommandBuffer(), source.getBufferData().bufferHandle(), destination.getBufferData().bufferHandle(), region);
+            }
+            return this;
+        }
+
+        public ComputeRecorder fillBuffer(VulkanBuffer buffer, long offset, long size, int value) {
+            vkCmdFillBuffer(commandBuffer.getCommandBuffer(), buffer.getBufferData().bufferHandle(), buffer.getFrameOffset() + offset, size, value);
+            return this;
+        }
+
+        protected VulkanComputePipeline getPipeline() {
+            if (pipeline == null) {
+                throw new IllegalStateException("No compute pipeline is bound");
+            }
+            return pipeline;
+        }
+
+        public VulkanCommandBuffer getCommandBuffer() {
+            return commandBuffer;
+        }
+    }
+
+    protected record ComputeBatch(VulkanCommandBuffer commandBuffer, DescriptorAllocator descriptorAllocator, long fence, long serial, CompletableFuture<Void> future) {
+    }
+}
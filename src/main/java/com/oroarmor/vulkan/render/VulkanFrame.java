@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.oroarmor.vulkan.context.VulkanCommandPool;
+import com.oroarmor.vulkan.context.VulkanContext;
+
+import static com.oroarmor.vulkan.util.VulkanUtil.UINT64_MAX;
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanFrame implements AutoCloseable {
+    protected final VulkanContext context;
+    protected final int index;
+    protected final VulkanSemaphoreHandler.VulkanSemaphore semaphore;
+    // A slot cycles through the swapchain images, so it keeps one recording per image instead of only its last one
+    protected final List<ImageRecording> imageRecordings;
+    protected final List<AutoCloseable> transientResources;
+    protected final DescriptorAllocator descriptorAllocator;
+    protected final UniformBufferRing uniformRing;
+
+    protected long submittedSerial;
+
+    public VulkanFrame(VulkanContext context, int index, VulkanSemaphoreHandler.VulkanSemaphore semaphore) {
+        this.context = context;
+        this.index = index;
+        this.semaphore = semaphore;
+        this.imageRecordings = new ArrayList<>();
+        this.transientResources = new ArrayList<>();
+        this.descriptorAllocator = new DescriptorAllocator(context);
+        this.uniformRing = new UniformBufferRing(context);
+    }
+
+    protected ImageRecording getImageRecording(int imageIndex) {
+        while (imageRecordings.size() <= imageIndex) {
+            imageRecordings.add(new ImageRecording(context));
+        }
+        return imageRecordings.get(imageIndex);
+    }
+
+    public void ensureWorkerCommandBuffers(int imageIndex, int workers) {
+        getImageRecording(imageIndex).ensureWorkerCommandBuffers(workers);
+    }
+
+    public void waitUntilAvailable() {
+        vkWaitForFences(context.getLogicalDevice().getDevice(), semaphore.getInFlightFence(), true, UINT64_MAX);
+        context.getDeletionQueue().frameCompleted(submittedSerial);
+        context.getSemaphoreHandler().setCurrentFrame(index);
+        if (descriptorAllocator.beginFrame()) {
+            invalidateRecording();
+        }
+        uniformRing.reset();
+        releaseTransientResources();
+    }
+
+    public void resetCommandBuffers(int imageIndex) {
+        getImageRecording(imageIndex).reset();
+    }
+
+    public void addTransientResource(AutoCloseable resource) {
+        transientResources.add(resource);
+    }
+
+    protected void releaseTransientResources() {
+        for (AutoCloseable resource : transientResources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                throw new RuntimeException("Unable to release transient resource of frame " + index, e);
+            }
+        }
+        transientResources.clear();
+    }
+
+    public boolean needsRecording(List<Consumer<VulkanRenderer>> renderSteps, int imageIndex) {
+        return !renderSteps.equals(getImageRecording(imageIndex).recordedRenderSteps);
+    }
+
+    public void invalidateRecording() {
+        imageRecordings.forEach(recording -> recording.recordedRenderSteps = null);
+    }
+
+    public void setRecorded(List<Consumer<VulkanRenderer>> renderSteps, int imageIndex) {
+        getImageRecording(imageIndex).recordedRenderSteps = List.copyOf(renderSteps);
+    }
+
+    public void setSubmittedSerial(long submittedSerial) {
+        this.submittedSerial = submittedSerial;
+    }
+
+    public long getSubmittedSerial() {
+        return submittedSerial;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public VulkanSemaphoreHandler.VulkanSemaphore getSemaphore() {
+        return semaphore;
+    }
+
+    public VulkanCommandPool getCommandPool(int imageIndex) {
+        return getImageRecording(imageIndex).commandPool;
+    }
+
+    public VulkanCommandBuffer getCommandBuffer(int imageIndex) {
+        return getImageRecording(imageIndex).commandBuffer;
+    }
+
+    public UniformBufferRing getUniformRing() {
+        return uniformRing;
+    }
+
+    public DescriptorAllocator getDescriptorAllocator() {
+        return descriptorAllocator;
+    }
+
+    public VulkanCommandBuffer getWorkerCommandBuffer(int imageIndex, int worker) {
+        return getImageRecording(imageIndex).workerCommandBuffers.get(worker);
+    }
+
+    @Override
+    public void close() {
+        releaseTransientResources();
+        descriptorAllocator.close();
+        uniformRing.close();
+        imageRecordings.forEach(ImageRecording::close);
+        imageRecordings.clear();
+    }
+
+    protected static class ImageRecording implements AutoCloseable {
+        protected final VulkanContext context;
+        protected final VulkanCommandPool commandPool;
+        protected final VulkanCommandBuffer commandBuffer;
+        protected final List<VulkanCommandPool> workerCommandPools = new ArrayList<>();
+        protected final List<VulkanCommandBuffer> workerCommandBuffers = new ArrayList<>();
+        protected List<Consumer<VulkanRenderer>> recordedRenderSteps;
+
+        protected ImageRecording(VulkanContext context) {
+            this.context = context;
+            this.commandPool = new VulkanCommandPool(context, VK_COMMAND_POOL_CREATE_TRANSIENT_BIT);
+            this.commandBuffer = new VulkanCommandBuffer(context, commandPool);
+        }
+
+        protected void ensureWorkerCommandBuffers(int workers) {
+            while (workerCommandPools.size() < workers) {
+                VulkanCommandPool workerCommandPool = new VulkanCommandPool(context, VK_COMMAND_POOL_CREATE_TRANSIENT_BIT);
+                workerCommandPools.add(workerCommandPool);
+                workerCommandBuffers.add(VulkanCommandBuffer.createCommandBuffers(1, context, workerCommandPool, VK_COMMAND_BUFFER_LEVEL_SECONDARY).get(0));
+            }
+        }
+
+        protected void reset() {
+            commandPool.reset();
+            commandBuffer.markPoolReset();
+            workerCommandPools.forEach(VulkanCommandPool::reset);
+            workerCommandBuffers.forEach(VulkanCommandBuffer::markPoolReset);
+            recordedRenderSteps = null;
+        }
+
+        @Override
+        public void close() {
+            commandPool.close();
+            workerCommandPools.forEach(VulkanCommandPool::close);
+            workerCommandPools.clear();
+            workerCommandBuffers.clear();
+            recordedRenderSteps = null;
+        }
+    }
+}
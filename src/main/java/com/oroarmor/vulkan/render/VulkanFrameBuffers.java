@@ -55,8 +55,8 @@ public class VulkanFrameBuffers implements AutoCloseable {
             VkFramebufferCreateInfo framebufferInfo = VkFramebufferCreateInfo.callocStack(stack);
             framebufferInfo.sType(VK_STRUCTURE_TYPE_FRAMEBUFFER_CREATE_INFO);
             framebufferInfo.renderPass(renderer.getRenderPass().getRenderPass());
-            framebufferInfo.width(renderer.getSwapChain().getSwapChainExtent().width());
-            framebufferInfo.height(renderer.getSwapChain().getSwapChainExtent().height());
+            framebufferInfo.width(renderer.getRenderTarget().getExtent().width());
+            framebufferInfo.height(renderer.getRenderTarget().getExtent().height());
             framebufferInfo.layers(1);
             for (Long imageView : renderer.getImageViews().getSwapChainImageViews()) {
                 imageViews.put(0, imageView);
@@ -47,18 +47,18 @@ public class VulkanImageViews implements AutoCloseable {
     }
 
     private List<Long> createSwapChainImageViews() {
-        List<Long> swapChainImageViews = new ArrayList<>(renderer.getSwapChain().swapChainImages.size());
+        List<Long> swapChainImageViews = new ArrayList<>(renderer.getRenderTarget().getImages().size());
 
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pImageView = stack.mallocLong(1);
 
-            for (long swapChainImage : renderer.getSwapChain().swapChainImages) {
+            for (long swapChainImage : renderer.getRenderTarget().getImages()) {
                 VkImageViewCreateInfo createInfo = VkImageViewCreateInfo.callocStack(stack);
 
                 createInfo.sType(VK_STRUCTURE_TYPE_IMAGE_VIEW_CREATE_INFO);
                 createInfo.image(swapChainImage);
                 createInfo.viewType(VK_IMAGE_VIEW_TYPE_2D);
-                createInfo.format(renderer.getSwapChain().getImageFormat());
+                createInfo.format(renderer.getRenderTarget().getImageFormat());
 
                 createInfo.components().r(VK_COMPONENT_SWIZZLE_IDENTITY)
                         .g(VK_COMPONENT_SWIZZLE_IDENTITY)
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.nio.ByteBuffer;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.pipeline.VulkanGraphicsPipeline;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkSubmitInfo;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanOffscreenRenderer extends VulkanRenderer {
+    protected int lastImageIndex = -1;
+
+    public VulkanOffscreenRenderer(VulkanContext vulkanContext, int width, int height) {
+        super(vulkanContext, null, renderer -> new VulkanOffscreenTarget(vulkanContext, width, height, vulkanContext.getSemaphoreHandler().getFramesInFlight()));
+    }
+
+    public void renderFrames(int frameCount, Runnable addRenderSteps) {
+        profiler.push("Render offscreen frames");
+        for (int i = 0; i < frameCount; i++) {
+            addRenderSteps.run();
+            render();
+        }
+        profiler.pop();
+    }
+
+    public ByteBuffer readPixels() {
+        if (lastImageIndex == -1) {
+            throw new IllegalStateException("No frame has been rendered yet");
+        }
+        return getOffscreenTarget().readPixels(lastImageIndex);
+    }
+
+    @Override
+    protected int acquireNextImage(VulkanFrame currentFrame) {
+        return currentFrame.getIndex() % renderTarget.getImages().size();
+    }
+
+    @Override
+    protected void submitCommandBuffer(VulkanFrame currentFrame, int imageIndex) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack);
+            submitInfo.sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
+            submitInfo.pCommandBuffers(stack.pointers(currentFrame.getCommandBuffer(imageIndex).getCommandBuffer()));
+
+            currentFrame.setSubmittedSerial(vulkanContext.getLogicalDevice().queueSubmitWithSerial(vulkanContext.getLogicalDevice().getGraphicsQueue(), submitInfo, currentFrame.getSemaphore().getInFlightFence(), "Failed to submit draw call to command buffer"));
+        }
+    }
+
+    @Override
+    protected boolean presentImage(VulkanFrame currentFrame, int imageIndex) {
+        lastImageIndex = imageIndex;
+        return false;
+    }
+
+    @Override
+    public void setFramesInFlight(int framesInFlight) {
+        super.setFramesInFlight(framesInFlight);
+        recreateRenderTarget();
+        lastImageIndex = -1;
+    }
+
+    @Override
+    protected void createPipeline() {
+        super.createPipeline();
+        // Read back frames have to contain every draw, so pipeline compiles block instead of skipping
+        graphicsPipeline.setCompileMode(VulkanGraphicsPipeline.CompileMode.BLOCK);
+    }
+
+    public VulkanOffscreenTarget getOffscreenTarget() {
+        return (VulkanOffscreenTarget) renderTarget;
+    }
+}
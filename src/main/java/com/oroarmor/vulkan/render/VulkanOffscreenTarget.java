@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oroarmor.vulkan.context.VulkanCommandPool;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.context.VulkanMemoryAllocator;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.*;
+
+import static com.oroarmor.vulkan.util.VulkanUtil.UINT64_MAX;
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanOffscreenTarget implements VulkanRenderTarget {
+    public static final int DEFAULT_IMAGE_FORMAT = VK_FORMAT_R8G8B8A8_UNORM;
+    public static final int BYTES_PER_PIXEL = 4;
+
+    protected final VulkanContext context;
+    protected final int imageFormat;
+    protected final VkExtent2D extent;
+    protected final List<Long> images;
+    protected final List<VulkanMemoryAllocator.Allocation> imageAllocations;
+    protected final VulkanCommandPool readbackCommandPool;
+
+    public VulkanOffscreenTarget(VulkanContext context, int width, int height, int imageCount) {
+        this(context, width, height, imageCount, DEFAULT_IMAGE_FORMAT);
+    }
+
+    public VulkanOffscreenTarget(VulkanContext context, int width, int height, int imageCount, int imageFormat) {
+        this.context = context;
+        this.imageFormat = imageFormat;
+        this.extent = VkExtent2D.create().set(width, height);
+        this.images = new ArrayList<>(imageCount);
+        this.imageAllocations = new ArrayList<>(imageCount);
+        this.readbackCommandPool = new VulkanCommandPool(context, VK_COMMAND_POOL_CREATE_TRANSIENT_BIT);
+        createImages(imageCount);
+    }
+
+    protected void createImages(int imageCount) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkImageCreateInfo imageInfo = VkImageCreateInfo.callocStack(stack);
+            imageInfo.sType(VK_STRUCTURE_TYPE_IMAGE_CREATE_INFO);
+            imageInfo.imageType(VK_IMAGE_TYPE_2D);
+            imageInfo.extent().width(extent.width()).height(extent.height()).depth(1);
+            imageInfo.mipLevels(1);
+            imageInfo.arrayLayers(1);
+            imageInfo.format(imageFormat);
+            imageInfo.tiling(VK_IMAGE_TILING_OPTIMAL);
+            imageInfo.initialLayout(VK_IMAGE_LAYOUT_UNDEFINED);
+            imageInfo.usage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT | VK_IMAGE_USAGE_TRANSFER_SRC_BIT);
+            imageInfo.samples(VK_SAMPLE_COUNT_1_BIT);
+            imageInfo.sharingMode(VK_SHARING_MODE_EXCLUSIVE);
+
+            LongBuffer pImage = stack.mallocLong(1);
+
+            for (int i = 0; i < imageCount; i++) {
+                VulkanUtil.checkVulkanResult(vkCreateImage(context.getLogicalDevice().getDevice(), imageInfo, null, pImage), "Failed to create offscreen image " + i);
+                images.add(pImage.get(0));
+                imageAllocations.add(context.getMemoryAllocator().allocateImage(pImage.get(0), VK_MEMORY_PROPERTY_DEVICE_LOCAL_BIT));
+            }
+        }
+    }
+
+    public synchronized ByteBuffer readPixels(int imageIndex) {
+        int size = extent.width() * extent.height() * BYTES_PER_PIXEL;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferCreateInfo bufferInfo = VkBufferCreateInfo.callocStack(stack);
+            bufferInfo.sType(VK_STRUCTURE_TYPE_BUFFER_CREATE_INFO);
+            bufferInfo.size(size);
+            bufferInfo.usage(VK_BUFFER_USAGE_TRANSFER_DST_BIT);
+            bufferInfo.sharingMode(VK_SHARING_MODE_EXCLUSIVE);
+
+            LongBuffer pBuffer = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateBuffer(context.getLogicalDevice().getDevice(), bufferInfo, null, pBuffer), "Unable to create readback buffer");
+            long readbackBuffer = pBuffer.get(0);
+            VulkanMemoryAllocator.Allocation readbackAllocation = context.getMemoryAllocator().allocateBuffer(readbackBuffer, VK_MEMORY_PROPERTY_HOST_VISIBLE_BIT | VK_MEMORY_PROPERTY_HOST_COHERENT_BIT);
+
+            try (VulkanCommandBuffer commandBuffer = new VulkanCommandBuffer(context, readbackCommandPool)) {
+                VkCommandBuffer buffer = commandBuffer.startRecording(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT);
+
+                VkMemoryBarrier.Buffer barrier = VkMemoryBarrier.callocStack(1, stack);
+                barrier.sType(VK_STRUCTURE_TYPE_MEMORY_BARRIER);
+                barrier.srcAccessMask(VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT);
+                barrier.dstAccessMask(VK_ACCESS_TRANSFER_READ_BIT);
+                vkCmdPipelineBarrier(buffer, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT, VK_PIPELINE_STAGE_TRANSFER_BIT, 0, barrier, null, null);
+
+                VkBufferImageCopy.Buffer region = VkBufferImageCopy.callocStack(1, stack);
+                region.bufferOffset(0).bufferRowLength(0).bufferImageHeight(0);
+                region.imageSubresource().aspectMask(VK_IMAGE_ASPECT_COLOR_BIT).mipLevel(0).baseArrayLayer(0).layerCount(1);
+                region.imageOffset().set(0, 0, 0);
+                region.imageExtent().set(extent.width(), extent.height(), 1);
+
+                vkCmdCopyImageToBuffer(buffer, images.get(imageIndex), getFinalLayout(), readbackBuffer, region);
+
+                commandBuffer.finishRecording();
+
+                VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack);
+                submitInfo.sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
+                submitInfo.pCommandBuffers(stack.pointers(buffer));
+
+                VkFenceCreateInfo fenceInfo = VkFenceCreateInfo.callocStack(stack);
+                fenceInfo.sType(VK_STRUCTURE_TYPE_FENCE_CREATE_INFO);
+                LongBuffer pFence = stack.mallocLong(1);
+                VulkanUtil.checkVulkanResult(vkCreateFence(context.getLogicalDevice().getDevice(), fenceInfo, null, pFence), "Failed to create readback fence");
+
+                try {
+                    VulkanUtil.checkVulkanResult(context.getLogicalDevice().queueSubmit(context.getLogicalDevice().getGraphicsQueue(), submitInfo, pFence.get(0)), "Failed to submit offscreen image readback");
+                    VulkanUtil.checkVulkanResult(vkWaitForFences(context.getLogicalDevice().getDevice(), pFence.get(0), true, UINT64_MAX), "Failed to wait for offscreen image readback");
+                } finally {
+                    vkDestroyFence(context.getLogicalDevice().getDevice(), pFence.get(0), null);
+                }
+            }
+
+            ByteBuffer pixels = BufferUtils.createByteBuffer(size);
+            MemoryUtil.memCopy(context.getMemoryAllocator().map(readbackAllocation), MemoryUtil.memAddress(pixels), size);
+            context.getMemoryAllocator().unmap(readbackAllocation);
+
+            vkDestroyBuffer(context.getLogicalDevice().getDevice(), readbackBuffer, null);
+            context.getMemoryAllocator().free(readbackAllocation);
+
+            return pixels;
+        }
+    }
+
+    @Override
+    public int getImageFormat() {
+        return imageFormat;
+    }
+
+    @Override
+    public VkExtent2D getExtent() {
+        return extent;
+    }
+
+    @Override
+    public List<Long> getImages() {
+        return images;
+    }
+
+    @Override
+    public int getFinalLayout() {
+        return VK_IMAGE_LAYOUT_TRANSFER_SRC_OPTIMAL;
+    }
+
+    @Override
+    public void close() {
+        images.forEach(image -> vkDestroyImage(context.getLogicalDevice().getDevice(), image, null));
+        imageAllocations.forEach(context.getMemoryAllocator()::free);
+        images.clear();
+        imageAllocations.clear();
+        readbackCommandPool.close();
+    }
+}
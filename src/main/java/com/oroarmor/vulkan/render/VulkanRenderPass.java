@@ -31,20 +31,27 @@ import com.oroarmor.vulkan.util.VulkanUtil;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.*;
 
-import static org.lwjgl.vulkan.KHRSwapchain.VK_IMAGE_LAYOUT_PRESENT_SRC_KHR;
 import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanRenderPass implements AutoCloseable {
     protected final long renderPass;
     protected final VulkanContext context;
     protected final VulkanRenderer renderer;
+    protected final int imageFormat;
+    protected final int finalLayout;
 
     public VulkanRenderPass(VulkanContext context, VulkanRenderer renderer) {
         this.context = context;
         this.renderer = renderer;
+        this.imageFormat = renderer.getRenderTarget().getImageFormat();
+        this.finalLayout = renderer.getRenderTarget().getFinalLayout();
         renderPass = createRenderPass();
     }
 
+    public boolean isCompatibleWith(VulkanRenderTarget renderTarget) {
+        return renderTarget.getImageFormat() == imageFormat && renderTarget.getFinalLayout() == finalLayout;
+    }
+
     protected long createRenderPass() {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             VkAttachmentDescription.Buffer colorAttachment = createColorAttachment(stack);
@@ -96,14 +103,14 @@ public class VulkanRenderPass implements AutoCloseable {
 
     protected VkAttachmentDescription.Buffer createColorAttachment(MemoryStack stack) {
         VkAttachmentDescription.Buffer colorAttachment = VkAttachmentDescription.callocStack(1, stack);
-        colorAttachment.format(renderer.getSwapChain().swapChainImageFormat);
+        colorAttachment.format(imageFormat);
         colorAttachment.samples(VK_SAMPLE_COUNT_1_BIT);
         colorAttachment.loadOp(VK_ATTACHMENT_LOAD_OP_CLEAR);
         colorAttachment.storeOp(VK_ATTACHMENT_STORE_OP_STORE);
         colorAttachment.stencilLoadOp(VK_ATTACHMENT_LOAD_OP_DONT_CARE);
         colorAttachment.stencilStoreOp(VK_ATTACHMENT_STORE_OP_DONT_CARE);
         colorAttachment.initialLayout(VK_IMAGE_LAYOUT_UNDEFINED);
-        colorAttachment.finalLayout(VK_IMAGE_LAYOUT_PRESENT_SRC_KHR);
+        colorAttachment.finalLayout(finalLayout);
         return colorAttachment;
     }
 
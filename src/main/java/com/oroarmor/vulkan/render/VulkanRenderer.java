@@ -24,50 +24,84 @@
 
 package com.oroarmor.vulkan.render;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.context.VulkanDeletionQueue;
 import com.oroarmor.vulkan.glfw.GLFWContext;
+import com.oroarmor.vulkan.render.pipeline.PipelineLayout;
+import com.oroarmor.vulkan.render.pipeline.PushConstantRange;
+import com.oroarmor.vulkan.render.pipeline.PushConstantWriter;
+import com.oroarmor.vulkan.render.pipeline.Scissor;
+import com.oroarmor.vulkan.render.pipeline.Viewport;
 import com.oroarmor.vulkan.render.pipeline.VulkanGraphicsPipeline;
 import com.oroarmor.vulkan.util.Profiler;
 import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.*;
 
-import static com.oroarmor.vulkan.render.VulkanSemaphoreHandler.MAX_FRAMES_IN_FLIGHT;
 import static com.oroarmor.vulkan.util.VulkanUtil.UINT64_MAX;
 import static org.lwjgl.vulkan.KHRSwapchain.*;
 import static org.lwjgl.vulkan.VK10.*;
 
-public class VulkanRenderer {
+public class VulkanRenderer implements AutoCloseable {
+    public static final int MIN_STEPS_PER_RECORDING_WORKER = 64;
+
     protected final VulkanContext vulkanContext;
     protected final GLFWContext glfwContext;
 
-    protected VulkanSwapChain swapChain;
+    protected final Function<VulkanRenderer, VulkanRenderTarget> renderTargetFactory;
+    protected VulkanRenderTarget renderTarget;
     protected VulkanImageViews imageViews;
     protected VulkanRenderPass renderPass;
     protected VulkanFrameBuffers frameBuffers;
 
     protected VulkanGraphicsPipeline graphicsPipeline;
-    protected List<VulkanCommandBuffer> commandBuffers;
+    protected final ThreadLocal<VulkanCommandBuffer> commandBuffer;
+
+    protected ExecutorService recordingExecutor;
+    protected int recordingThreads;
 
     protected final List<Consumer<VulkanRenderer>> renderSteps;
+    protected final List<VulkanFrame> frames;
     private boolean frameBufferResized = false;
+    private volatile boolean recordingSingleUse = false;
+    private volatile boolean recordingsInvalidated = false;
+    protected ShaderReloader shaderReloader;
     private int frame;
 
     protected final Profiler profiler;
 
     public VulkanRenderer(VulkanContext vulkanContext, GLFWContext glfwContext) {
+        this(vulkanContext, glfwContext, renderer -> new VulkanSwapChain(vulkanContext, renderer));
+    }
+
+    protected VulkanRenderer(VulkanContext vulkanContext, GLFWContext glfwContext, Function<VulkanRenderer, VulkanRenderTarget> renderTargetFactory) {
         this.vulkanContext = vulkanContext;
         this.glfwContext = glfwContext;
+        this.renderTargetFactory = renderTargetFactory;
         renderSteps = new ArrayList<>();
+        frames = new ArrayList<>();
+        commandBuffer = new ThreadLocal<>();
+        setRecordingThreads(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
         profiler = new Profiler("renderer");
-        swapChain = new VulkanSwapChain(vulkanContext, this);
-        glfwContext.addFramebufferSizeCallback((window, width, height) -> frameBufferResized = true);
+        renderTarget = renderTargetFactory.apply(this);
+        createRenderContext();
+        if (glfwContext != null) {
+            glfwContext.addFramebufferSizeCallback((window, width, height) -> frameBufferResized = true);
+        }
     }
 
     public void addRenderStep(Consumer<VulkanRenderer> renderStep) {
@@ -75,164 +109,423 @@ public class VulkanRenderer {
     }
 
     public static Consumer<VulkanRenderer> renderIndexedWithShader(Shader shader, VulkanBuffer vertexBuffer, VulkanBuffer indexBuffer) {
+        return renderIndexedWithShader(shader, vertexBuffer, indexBuffer, renderer -> {
+        });
+    }
+
+    public static Consumer<VulkanRenderer> renderIndexedWithShader(Shader shader, VulkanBuffer vertexBuffer, VulkanBuffer indexBuffer, Consumer<VulkanRenderer> drawSetup) {
         return renderer -> {
-            renderer.graphicsPipeline.setShader(shader);
-            renderer.profiler.profile(renderer.graphicsPipeline::rebuildIfNeeded, "Rebuild Graphics Pipeline");
-            renderer.profiler.push("Add commands");
+            VkCommandBuffer commandBuffer = renderer.getCommandBuffer().getCommandBuffer();
             try (MemoryStack stack = MemoryStack.stackPush()) {
-                for (VulkanCommandBuffer commandBuffer : renderer.commandBuffers) {
-                    vkCmdBindPipeline(commandBuffer.getCommandBuffer(), VK_PIPELINE_BIND_POINT_GRAPHICS, renderer.graphicsPipeline.getPipeline());
-                    vkCmdBindVertexBuffers(commandBuffer.getCommandBuffer(), 0, stack.longs(vertexBuffer.getBufferData().bufferHandle()), stack.longs(0));
-                    vkCmdBindIndexBuffer(commandBuffer.getCommandBuffer(), indexBuffer.getBufferData().bufferHandle(), 0, VK_INDEX_TYPE_UINT32);
-                    vkCmdDrawIndexed(commandBuffer.getCommandBuffer(), indexBuffer.getSize(), 1, 0, 0, 0);
+                long pipeline = renderer.graphicsPipeline.getPipeline(shader);
+                if (pipeline == VK_NULL_HANDLE) {
+                    return;
                 }
+                vkCmdBindPipeline(commandBuffer, VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline);
+                drawSetup.accept(renderer);
+                vkCmdBindVertexBuffers(commandBuffer, 0, stack.longs(vertexBuffer.getBufferData().bufferHandle()), stack.longs(vertexBuffer.getFrameOffset()));
+                vkCmdBindIndexBuffer(commandBuffer, indexBuffer.getBufferData().bufferHandle(), indexBuffer.getFrameOffset(), VK_INDEX_TYPE_UINT32);
+                vkCmdDrawIndexed(commandBuffer, indexBuffer.getSize(), 1, 0, 0, 0);
             }
-            renderer.profiler.pop();
         };
     }
 
+    public static Consumer<VulkanRenderer> bindDescriptorSet(Shader shader, int set, List<DescriptorWrite> writes) {
+        List<DescriptorWrite> descriptorWrites = List.copyOf(writes);
+        return renderer -> renderer.bindDescriptorSet(renderer.getCommandBuffer(), shader, set, descriptorWrites);
+    }
+
+    public void bindDescriptorSet(VulkanCommandBuffer commandBuffer, Shader shader, int set, List<DescriptorWrite> writes, int... dynamicOffsets) {
+        DescriptorSetLayoutCache layoutCache = vulkanContext.getDescriptorSetLayoutCache();
+        long setLayout = layoutCache.getSetLayout(shader.getPipelineLayout().descriptorSets().get(set));
+        long descriptorSet = getCurrentFrame().getDescriptorAllocator().getDescriptorSet(setLayout, writes);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            vkCmdBindDescriptorSets(commandBuffer.getCommandBuffer(), VK_PIPELINE_BIND_POINT_GRAPHICS, layoutCache.getPipelineLayout(shader.getPipelineLayout()), set, stack.longs(descriptorSet), dynamicOffsets.length > 0 ? stack.ints(dynamicOffsets) : null);
+        }
+    }
+
+    public UniformBufferRing.Allocation allocateUniforms(int size) {
+        markRecordingSingleUse();
+        return getCurrentFrame().getUniformRing().allocate(size);
+    }
+
+    public void bindUniforms(VulkanCommandBuffer commandBuffer, Shader shader, int set, int binding, UniformBufferRing.Allocation uniforms) {
+        bindDescriptorSet(commandBuffer, shader, set, List.of(uniforms.descriptorWrite(binding)), uniforms.offset());
+    }
+
+    public static Consumer<VulkanRenderer> setViewport(Viewport viewport, Scissor scissor) {
+        return new ViewportStep(viewport, scissor);
+    }
+
+    public static Consumer<VulkanRenderer> renderIndexedWithUniforms(Shader shader, VulkanBuffer vertexBuffer, VulkanBuffer indexBuffer, int uniformSize, Consumer<ByteBuffer> uniformWriter) {
+        return renderIndexedWithShader(shader, vertexBuffer, indexBuffer, uniforms(shader, 0, 0, uniformSize, uniformWriter));
+    }
+
+    public static Consumer<VulkanRenderer> uniforms(Shader shader, int set, int binding, int uniformSize, Consumer<ByteBuffer> uniformWriter) {
+        return renderer -> {
+            UniformBufferRing.Allocation uniforms = renderer.allocateUniforms(uniformSize);
+            uniformWriter.accept(uniforms.data());
+            renderer.bindUniforms(renderer.getCommandBuffer(), shader, set, binding, uniforms);
+        };
+    }
+
+    public static <T> Consumer<VulkanRenderer> pushConstants(Shader shader, PushConstantRange range, T value, PushConstantWriter<T> writer) {
+        return renderer -> renderer.pushConstants(renderer.getCommandBuffer(), shader, range, value, writer);
+    }
+
+    public <T> void pushConstants(VulkanCommandBuffer commandBuffer, Shader shader, PushConstantRange range, T value, PushConstantWriter<T> writer) {
+        PipelineLayout layout = shader.getPipelineLayout();
+        if (!layout.pushConstants().contains(range)) {
+            throw new IllegalArgumentException("Push constant range " + range + " is not declared by " + shader.getShaderFile());
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            ByteBuffer data = stack.calloc(range.size());
+            writer.write(value, data);
+            vkCmdPushConstants(commandBuffer.getCommandBuffer(), vulkanContext.getDescriptorSetLayoutCache().getPipelineLayout(layout), range.stageFlags(), range.offset(), data);
+        }
+    }
+
     public void render() {
         profiler.push("render");
-        profiler.profile(this::createRenderContext, "Create render context");
-        profiler.profile(this::createPipeline, "Create pipeline");
-        profiler.profile(this::computeRenderSteps, "Compute render steps");
-        profiler.profile(this::submitRender, "Submit render");
-        profiler.profile(this::cleanupPipeline, "Cleanup pipeline");
-        profiler.profile(this::cleanUpRenderContext, "Cleanup context");
+        VulkanFrame currentFrame = frames.get(frame);
+        profiler.profile(currentFrame::waitUntilAvailable, "Wait for frame slot");
+        if (shaderReloader != null) {
+            profiler.profile(() -> shaderReloader.applyPendingReloads(this), "Apply shader reloads");
+        }
+
+        profiler.push("Acquire next image");
+        int imageIndex = acquireNextImage(currentFrame);
+        profiler.pop();
+
+        if (imageIndex != -1) {
+            if (recordingsInvalidated) {
+                recordingsInvalidated = false;
+                frames.forEach(VulkanFrame::invalidateRecording);
+            }
+            if (currentFrame.needsRecording(renderSteps, imageIndex)) {
+                profiler.profile(() -> computeRenderSteps(currentFrame, imageIndex), "Compute render steps");
+            }
+            profiler.profile(() -> submitRender(currentFrame, imageIndex), "Submit render");
+        }
+        renderSteps.clear();
         profiler.pop();
     }
 
-    protected void submitRender() {
+    protected int acquireNextImage(VulkanFrame currentFrame) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            profiler.push("Acquire next image");
             IntBuffer imageIndex = stack.mallocInt(1);
-            VulkanSemaphoreHandler.VulkanSemaphore currentSemaphore = vulkanContext.getSemaphoreHandler().getSemaphores().get(frame);
-            int result = vkAcquireNextImageKHR(vulkanContext.getLogicalDevice().getDevice(), swapChain.getSwapChain(), UINT64_MAX, currentSemaphore.getImageAvailableSemaphore(), VK_NULL_HANDLE, imageIndex);
+            int result = vkAcquireNextImageKHR(vulkanContext.getLogicalDevice().getDevice(), getSwapChain().getSwapChain(), UINT64_MAX, currentFrame.getSemaphore().getImageAvailableSemaphore(), VK_NULL_HANDLE, imageIndex);
 
             if (result == VK_ERROR_OUT_OF_DATE_KHR) {
-                recreateSwapChainOnFrameBufferResize();
-                return;
+                recreateRenderTarget();
+                return -1;
             } else if (result != VK_SUCCESS && result != VK_SUBOPTIMAL_KHR) {
                 throw new RuntimeException("Unable to acquire swap chain image.");
             }
-            profiler.pop();
+            return imageIndex.get(0);
+        }
+    }
 
-            if (vulkanContext.getSemaphoreHandler().getImagesInFlight().get(imageIndex.get(0)) != VK_NULL_HANDLE) {
-                vkWaitForFences(vulkanContext.getLogicalDevice().getDevice(), currentSemaphore.getInFlightFence(), true, UINT64_MAX);
-            }
-            vulkanContext.getSemaphoreHandler().getImagesInFlight().set(imageIndex.get(0), currentSemaphore.getInFlightFence());
+    protected void submitRender(VulkanFrame currentFrame, int imageIndex) {
+//        updateUniformBuffer(imageIndex);
+
+        profiler.profile(vulkanContext.getUploadManager()::flush, "Flush pending uploads");
+
+        profiler.push("Reset current fence before submit");
+        vkResetFences(vulkanContext.getLogicalDevice().getDevice(), currentFrame.getSemaphore().getInFlightFence());
+        profiler.pop();
+
+        profiler.profile(() -> submitCommandBuffer(currentFrame, imageIndex), "Submit queue");
 
-//            updateUniformBuffer(imageIndex.get(0));
+        profiler.push("Present rendered image");
+        boolean outOfDate = presentImage(currentFrame, imageIndex);
+        profiler.pop();
 
-            profiler.push("Reset current fence before submit");
-            vkResetFences(vulkanContext.getLogicalDevice().getDevice(), currentSemaphore.getInFlightFence());
-            profiler.pop();
+        frame = (frame + 1) % frames.size();
+
+        if (outOfDate || frameBufferResized) {
+            recreateRenderTarget();
+        }
+    }
+
+    protected void submitCommandBuffer(VulkanFrame currentFrame, int imageIndex) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VulkanSemaphoreHandler.VulkanSemaphore currentSemaphore = currentFrame.getSemaphore();
 
-            profiler.push("Submit queue");
             VkSubmitInfo submitInfo = VkSubmitInfo.callocStack(stack);
             submitInfo.sType(VK_STRUCTURE_TYPE_SUBMIT_INFO);
             submitInfo.waitSemaphoreCount(1);
             submitInfo.pWaitSemaphores(stack.longs(currentSemaphore.getImageAvailableSemaphore()));
             submitInfo.pWaitDstStageMask(stack.ints(VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT));
-            submitInfo.pCommandBuffers(stack.pointers(commandBuffers.get(imageIndex.get(0)).getCommandBuffer()));
+            submitInfo.pCommandBuffers(stack.pointers(currentFrame.getCommandBuffer(imageIndex).getCommandBuffer()));
+            submitInfo.pSignalSemaphores(stack.longs(currentSemaphore.getRenderFinishedSemaphore()));
 
-            LongBuffer signal = stack.longs(currentSemaphore.getRenderFinishedSemaphore());
-            submitInfo.pSignalSemaphores(signal);
-
-            VulkanUtil.checkVulkanResult(vkQueueSubmit(vulkanContext.getLogicalDevice().getGraphicsQueue(), submitInfo, currentSemaphore.getInFlightFence()), "Failed to submit draw call to command buffer");
-            profiler.pop();
+            currentFrame.setSubmittedSerial(vulkanContext.getLogicalDevice().queueSubmitWithSerial(vulkanContext.getLogicalDevice().getGraphicsQueue(), submitInfo, currentSemaphore.getInFlightFence(), "Failed to submit draw call to command buffer"));
+        }
+    }
 
-            profiler.push("Present rendered image");
+    protected boolean presentImage(VulkanFrame currentFrame, int imageIndex) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
             VkPresentInfoKHR presentInfo = VkPresentInfoKHR.callocStack(stack);
             presentInfo.sType(VK_STRUCTURE_TYPE_PRESENT_INFO_KHR);
-            presentInfo.pWaitSemaphores(signal);
+            presentInfo.pWaitSemaphores(stack.longs(currentFrame.getSemaphore().getRenderFinishedSemaphore()));
 
-            LongBuffer swapChains = stack.longs(swapChain.getSwapChain());
+            LongBuffer swapChains = stack.longs(getSwapChain().getSwapChain());
 
             presentInfo.swapchainCount(1);
             presentInfo.pSwapchains(swapChains);
-            presentInfo.pImageIndices(imageIndex);
+            presentInfo.pImageIndices(stack.ints(imageIndex));
             presentInfo.pResults(null);
 
-            result = vkQueuePresentKHR(vulkanContext.getLogicalDevice().getPresentQueue(), presentInfo);
+            int result = vulkanContext.getLogicalDevice().queuePresent(presentInfo);
 
-            if (result == VK_ERROR_OUT_OF_DATE_KHR || result == VK_SUBOPTIMAL_KHR || frameBufferResized) {
-                profiler.pop();
-                recreateSwapChainOnFrameBufferResize();
-            } else {
-                VulkanUtil.checkVulkanResult(result, "Unable to present swap chain image");
-                profiler.pop();
+            if (result == VK_ERROR_OUT_OF_DATE_KHR || result == VK_SUBOPTIMAL_KHR) {
+                return true;
             }
-
-            profiler.push("Wait for present queue to idle");
-            vkQueueWaitIdle(vulkanContext.getLogicalDevice().getPresentQueue());
-            profiler.pop();
-
-            frame = (frame + 1) % MAX_FRAMES_IN_FLIGHT;
+            VulkanUtil.checkVulkanResult(result, "Unable to present swap chain image");
+            return false;
         }
     }
 
-    private void recreateSwapChainOnFrameBufferResize() {
-        swapChain.close();
-        swapChain = new VulkanSwapChain(vulkanContext, this);
+    protected void recreateRenderTarget() {
+        profiler.push("Recreate render target");
+        waitIdle();
+        cleanupFrames();
+        frameBuffers.close();
+        imageViews.close();
+        renderTarget.close();
+        renderTarget = renderTargetFactory.apply(this);
+        profiler.profile(() -> imageViews = new VulkanImageViews(vulkanContext, this), "Create Image Views");
+        // Pipelines only depend on the render pass, so they survive a resize as long as the format does not change
+        if (!renderPass.isCompatibleWith(renderTarget)) {
+            cleanupPipeline();
+            renderPass.close();
+            profiler.profile(() -> renderPass = new VulkanRenderPass(vulkanContext, this), "Create Render Pass");
+            profiler.profile(this::createPipeline, "Create pipeline");
+        }
+        profiler.profile(() -> frameBuffers = new VulkanFrameBuffers(vulkanContext, this), "Create Frame Buffers");
+        profiler.profile(this::createFrames, "Create frames");
         frameBufferResized = false;
+        profiler.pop();
+    }
+
+    public void setFramesInFlight(int framesInFlight) {
+        waitIdle();
+        cleanupFrames();
+        vulkanContext.getSemaphoreHandler().setFramesInFlight(framesInFlight);
+        createFrames();
+    }
+
+    public int getFramesInFlight() {
+        return frames.size();
+    }
+
+    protected void waitIdle() {
+        vulkanContext.getLogicalDevice().waitIdle();
+        VulkanDeletionQueue deletionQueue = vulkanContext.getDeletionQueue();
+        deletionQueue.frameCompleted(deletionQueue.getSubmittedSerial());
     }
 
     protected void createPipeline() {
         this.graphicsPipeline = new VulkanGraphicsPipeline(vulkanContext, this);
-        commandBuffers = createCommandBuffers();
     }
 
-    protected List<VulkanCommandBuffer> createCommandBuffers() {
-        int commandBuffersCount = frameBuffers.getFrameBuffers().size();
-
-        List<VulkanCommandBuffer> commandBuffers = VulkanCommandBuffer.createCommandBuffers(commandBuffersCount, vulkanContext);
+    protected void createFrames() {
+        List<VulkanSemaphoreHandler.VulkanSemaphore> semaphores = vulkanContext.getSemaphoreHandler().getSemaphores();
+        for (int i = 0; i < semaphores.size(); i++) {
+            frames.add(new VulkanFrame(vulkanContext, i, semaphores.get(i)));
+        }
+        frame = 0;
+    }
 
+    protected void beginCommandBuffer(VulkanCommandBuffer primaryCommandBuffer, int imageIndex, int contents) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             VkRenderPassBeginInfo renderPassInfo = VkRenderPassBeginInfo.callocStack(stack);
             renderPassInfo.sType(VK_STRUCTURE_TYPE_RENDER_PASS_BEGIN_INFO);
             renderPassInfo.renderPass(renderPass.getRenderPass());
-            renderPassInfo.renderArea(VkRect2D.callocStack(stack).set(VkOffset2D.callocStack(stack).set(0, 0), swapChain.getSwapChainExtent()));
+            renderPassInfo.renderArea(VkRect2D.callocStack(stack).set(VkOffset2D.callocStack(stack).set(0, 0), renderTarget.getExtent()));
+            renderPassInfo.framebuffer(frameBuffers.getFrameBuffers().get(imageIndex));
 
             VkClearValue.Buffer clearValue = VkClearValue.callocStack(1, stack);
             clearValue.color().float32(stack.floats(0, 0, 0, 1));
             renderPassInfo.pClearValues(clearValue);
 
-            for (int i = 0; i < commandBuffers.size(); i++) {
-                VkCommandBuffer commandBuffer = commandBuffers.get(i).getCommandBuffer();
-                commandBuffers.get(i).startRecording(0);
+            primaryCommandBuffer.startRecording(0);
+            vkCmdBeginRenderPass(primaryCommandBuffer.getCommandBuffer(), renderPassInfo, contents);
+        }
+    }
 
-                renderPassInfo.framebuffer(frameBuffers.getFrameBuffers().get(i));
-                vkCmdBeginRenderPass(commandBuffer, renderPassInfo, VK_SUBPASS_CONTENTS_INLINE);
+    public void applyViewport(VulkanCommandBuffer commandBuffer, ViewportStep step) {
+        if (!graphicsPipeline.isDynamicViewportState()) {
+            graphicsPipeline.setViewport(step.viewport());
+            graphicsPipeline.setScissor(step.scissor());
+            return;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            Viewport viewport = step.viewport() != null ? step.viewport() : Viewport.getDefaultViewport(this);
+            Scissor scissor = step.scissor() != null ? step.scissor() : Scissor.getDefaultScissor(this);
+            vkCmdSetViewport(commandBuffer.getCommandBuffer(), 0, viewport.createVkViewport(stack));
+            vkCmdSetScissor(commandBuffer.getCommandBuffer(), 0, scissor.createVkRect2D(stack));
+        }
+    }
+
+    // Dynamic state is not inherited between command buffers, so each one starts from the last viewport step before its first render step
+    protected void applyInitialViewport(VulkanCommandBuffer commandBuffer, int firstStep) {
+        ViewportStep initial = new ViewportStep(null, null);
+        for (int i = firstStep - 1; i >= 0; i--) {
+            if (renderSteps.get(i) instanceof ViewportStep step) {
+                initial = step;
+                break;
             }
         }
+        applyViewport(commandBuffer, initial);
+    }
+
+    protected void beginSecondaryCommandBuffer(VulkanCommandBuffer secondaryCommandBuffer, int imageIndex) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkCommandBufferInheritanceInfo inheritanceInfo = VkCommandBufferInheritanceInfo.callocStack(stack);
+            inheritanceInfo.sType(VK_STRUCTURE_TYPE_COMMAND_BUFFER_INHERITANCE_INFO);
+            inheritanceInfo.renderPass(renderPass.getRenderPass());
+            inheritanceInfo.subpass(0);
+            inheritanceInfo.framebuffer(frameBuffers.getFrameBuffers().get(imageIndex));
+
+            secondaryCommandBuffer.startRecording(VK_COMMAND_BUFFER_USAGE_RENDER_PASS_CONTINUE_BIT, inheritanceInfo);
+        }
+    }
+
+    protected void computeRenderSteps(VulkanFrame currentFrame, int imageIndex) {
+        profiler.profile(() -> currentFrame.resetCommandBuffers(imageIndex), "Reset frame command pools");
+        recordingSingleUse = false;
+
+        int workers = Math.min(recordingThreads, renderSteps.size() / MIN_STEPS_PER_RECORDING_WORKER);
+        // Without dynamic viewport state, viewport steps change the shared pipeline state in step order, so one thread records them
+        if (workers > 1 && graphicsPipeline.isDynamicViewportState()) {
+            recordRenderStepsInParallel(currentFrame, imageIndex, workers);
+        } else {
+            recordRenderSteps(currentFrame, imageIndex);
+        }
+
+        profiler.push("End Command Buffer");
+        vkCmdEndRenderPass(currentFrame.getCommandBuffer(imageIndex).getCommandBuffer());
+        currentFrame.getCommandBuffer(imageIndex).finishRecording();
+        profiler.pop();
+        // Steps drawn without their real pipeline, or writing per-frame uniforms, have to run again next frame
+        if (!recordingSingleUse) {
+            currentFrame.setRecorded(renderSteps, imageIndex);
+        }
+    }
+
+    // Can be called from recording workers, so the frames are only touched on the render thread before the next recording check
+    public void invalidateRecordings() {
+        recordingsInvalidated = true;
+    }
+
+    public ShaderReloader getShaderReloader() {
+        return shaderReloader;
+    }
+
+    public void setShaderReloader(ShaderReloader shaderReloader) {
+        this.shaderReloader = shaderReloader;
+    }
 
-        return commandBuffers;
+    public void markRecordingSingleUse() {
+        recordingSingleUse = true;
     }
 
-    protected void computeRenderSteps() {
+    protected void recordRenderSteps(VulkanFrame currentFrame, int imageIndex) {
+        VulkanCommandBuffer primaryCommandBuffer = currentFrame.getCommandBuffer(imageIndex);
+        commandBuffer.set(primaryCommandBuffer);
+        profiler.profile(() -> beginCommandBuffer(primaryCommandBuffer, imageIndex, VK_SUBPASS_CONTENTS_INLINE), "Begin Command Buffer");
+        applyInitialViewport(primaryCommandBuffer, 0);
         profiler.push("Add render steps");
         renderSteps.forEach(step -> profiler.profile(() -> step.accept(this), "Compute Render step " + step.toString()));
         profiler.pop();
-        profiler.push("End Command Buffers");
-        for (VulkanCommandBuffer buffer : commandBuffers) {
-            vkCmdEndRenderPass(buffer.getCommandBuffer());
-            buffer.finishRecording();
+        commandBuffer.remove();
+    }
+
+    protected void recordRenderStepsInParallel(VulkanFrame currentFrame, int imageIndex, int workers) {
+        profiler.push("Begin Command Buffer");
+        currentFrame.ensureWorkerCommandBuffers(imageIndex, workers);
+        beginCommandBuffer(currentFrame.getCommandBuffer(imageIndex), imageIndex, VK_SUBPASS_CONTENTS_SECONDARY_COMMAND_BUFFERS);
+        profiler.pop();
+
+        profiler.push("Record render steps in parallel");
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            int firstStep = worker * renderSteps.size() / workers;
+            List<Consumer<VulkanRenderer>> steps = renderSteps.subList(firstStep, (worker + 1) * renderSteps.size() / workers);
+            VulkanCommandBuffer secondaryCommandBuffer = currentFrame.getWorkerCommandBuffer(imageIndex, worker);
+            tasks.add(() -> {
+                beginSecondaryCommandBuffer(secondaryCommandBuffer, imageIndex);
+                commandBuffer.set(secondaryCommandBuffer);
+                try {
+                    applyInitialViewport(secondaryCommandBuffer, firstStep);
+                    steps.forEach(step -> step.accept(this));
+                } finally {
+                    commandBuffer.remove();
+                }
+                secondaryCommandBuffer.finishRecording();
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : recordingExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while recording render steps", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to record render steps", e.getCause());
         }
         profiler.pop();
+
+        profiler.push("Execute secondary command buffers");
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer pSecondaryCommandBuffers = stack.mallocPointer(workers);
+            for (int worker = 0; worker < workers; worker++) {
+                pSecondaryCommandBuffers.put(worker, currentFrame.getWorkerCommandBuffer(imageIndex, worker).getCommandBuffer());
+            }
+            vkCmdExecuteCommands(currentFrame.getCommandBuffer(imageIndex).getCommandBuffer(), pSecondaryCommandBuffers);
+        }
+        profiler.pop();
+    }
+
+    public void setRecordingThreads(int recordingThreads) {
+        if (recordingThreads < 1) {
+            throw new IllegalArgumentException("At least one recording thread is required, requested " + recordingThreads);
+        }
+        if (recordingExecutor != null) {
+            recordingExecutor.shutdown();
+        }
+        this.recordingThreads = recordingThreads;
+        this.recordingExecutor = Executors.newFixedThreadPool(recordingThreads, runnable -> {
+            Thread thread = new Thread(runnable, "Render Recording Worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getRecordingThreads() {
+        return recordingThreads;
+    }
+
+    public VulkanCommandBuffer getCommandBuffer() {
+        return commandBuffer.get();
+    }
+
+    protected void cleanupFrames() {
+        frames.forEach(VulkanFrame::close);
+        frames.clear();
     }
 
     protected void cleanupPipeline() {
-        commandBuffers.forEach(VulkanCommandBuffer::close);
-        commandBuffers.clear();
         graphicsPipeline.close();
     }
 
     protected void createRenderContext() {
-        if (vulkanContext.getSemaphoreHandler().getImagesInFlight().isEmpty()) {
-            vulkanContext.getSemaphoreHandler().createImagesInFlight(this);
-        }
-
         profiler.push("Create Image Views");
         imageViews = new VulkanImageViews(vulkanContext, this);
         profiler.pop();
@@ -242,17 +535,32 @@ public class VulkanRenderer {
         profiler.push("Create Frame Buffers");
         frameBuffers = new VulkanFrameBuffers(vulkanContext, this);
         profiler.pop();
+        profiler.profile(this::createPipeline, "Create pipeline");
+        profiler.profile(this::createFrames, "Create frames");
     }
 
     protected void cleanUpRenderContext() {
-        renderSteps.clear();
+        cleanupFrames();
+        cleanupPipeline();
         frameBuffers.close();
         renderPass.close();
         imageViews.close();
     }
 
+    @Override
+    public void close() {
+        recordingExecutor.shutdown();
+        waitIdle();
+        cleanUpRenderContext();
+        renderTarget.close();
+    }
+
+    public VulkanRenderTarget getRenderTarget() {
+        return renderTarget;
+    }
+
     public VulkanSwapChain getSwapChain() {
-        return swapChain;
+        return renderTarget instanceof VulkanSwapChain swapChain ? swapChain : null;
     }
 
     public VulkanRenderPass getRenderPass() {
@@ -267,6 +575,10 @@ public class VulkanRenderer {
         return graphicsPipeline;
     }
 
+    public VulkanFrame getCurrentFrame() {
+        return frames.get(frame);
+    }
+
     public Profiler getProfiler() {
         return this.profiler;
     }
@@ -27,7 +27,6 @@ package com.oroarmor.vulkan.render;
 import java.nio.LongBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.oroarmor.vulkan.util.VulkanUtil;
 import com.oroarmor.vulkan.context.VulkanContext;
@@ -38,28 +37,47 @@ import org.lwjgl.vulkan.VkSemaphoreCreateInfo;
 import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanSemaphoreHandler implements AutoCloseable {
-    public static final int MAX_FRAMES_IN_FLIGHT = 5;
+    public static final int DEFAULT_FRAMES_IN_FLIGHT = 2;
     protected final VulkanContext context;
     protected final List<VulkanSemaphore> semaphoreList;
-    protected final List<Long> imagesInFlight;
+    protected int framesInFlight;
+    protected volatile int currentFrame;
 
     public VulkanSemaphoreHandler(VulkanContext context) {
+        this(context, DEFAULT_FRAMES_IN_FLIGHT);
+    }
+
+    public VulkanSemaphoreHandler(VulkanContext context, int framesInFlight) {
         this.context = context;
+        this.framesInFlight = framesInFlight;
         semaphoreList = createSemaphore();
-        imagesInFlight = new ArrayList<>();
     }
 
-    public void createImagesInFlight(VulkanRenderer renderer) {
-        int swapChainImageCount = renderer.getSwapChain().getImageCount();
-        imagesInFlight.clear();
-        for (int i = 0; i < swapChainImageCount; i++) {
-            imagesInFlight.add(VK_NULL_HANDLE);
+    public void setFramesInFlight(int framesInFlight) {
+        if (framesInFlight < 1) {
+            throw new IllegalArgumentException("At least one frame must be in flight, requested " + framesInFlight);
         }
+        close();
+        semaphoreList.clear();
+        this.framesInFlight = framesInFlight;
+        semaphoreList.addAll(createSemaphore());
+    }
+
+    public int getFramesInFlight() {
+        return framesInFlight;
+    }
+
+    public void setCurrentFrame(int currentFrame) {
+        this.currentFrame = currentFrame;
+    }
+
+    public int getCurrentFrame() {
+        return currentFrame;
     }
 
     protected List<VulkanSemaphore> createSemaphore() {
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            List<VulkanSemaphore> semaphores = new ArrayList<>(MAX_FRAMES_IN_FLIGHT);
+            List<VulkanSemaphore> semaphores = new ArrayList<>(framesInFlight);
 
             VkSemaphoreCreateInfo semaphoreInfo = VkSemaphoreCreateInfo.callocStack(stack);
             semaphoreInfo.sType(VK_STRUCTURE_TYPE_SEMAPHORE_CREATE_INFO);
@@ -72,7 +90,7 @@ public class VulkanSemaphoreHandler implements AutoCloseable {
             LongBuffer pRenderFinishedSemaphore = stack.longs(0);
             LongBuffer pFence = stack.longs(0);
 
-            for (int i = 0; i < MAX_FRAMES_IN_FLIGHT; i++) {
+            for (int i = 0; i < framesInFlight; i++) {
                 VulkanUtil.checkVulkanResult(vkCreateSemaphore(context.getLogicalDevice().getDevice(), semaphoreInfo, null, pImageAvailableSemaphore), "Failed to create image available semaphore " + i);
                 VulkanUtil.checkVulkanResult(vkCreateSemaphore(context.getLogicalDevice().getDevice(), semaphoreInfo, null, pRenderFinishedSemaphore), "Failed to create render finished semaphore " + i);
                 VulkanUtil.checkVulkanResult(vkCreateFence(context.getLogicalDevice().getDevice(), fenceInfo, null, pFence), "Failed to create in flight fence " + i);
@@ -93,10 +111,6 @@ public class VulkanSemaphoreHandler implements AutoCloseable {
         return semaphoreList;
     }
 
-    public List<Long> getImagesInFlight() {
-        return imagesInFlight;
-    }
-
     public static class VulkanSemaphore implements AutoCloseable {
         protected final long imageAvailableSemaphore, renderFinishedSemaphore, inFlightFence;
         protected final VulkanContext context;
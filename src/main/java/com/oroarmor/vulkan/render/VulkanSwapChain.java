@@ -44,7 +44,7 @@ import static org.lwjgl.vulkan.KHRSurface.*;
 import static org.lwjgl.vulkan.KHRSwapchain.*;
 import static org.lwjgl.vulkan.VK10.*;
 
-public class VulkanSwapChain implements AutoCloseable {
+public class VulkanSwapChain implements VulkanRenderTarget {
     protected final int swapChainImageFormat;
     protected final VkExtent2D swapChainExtent;
     protected final int imageCount;
@@ -194,10 +194,26 @@ public class VulkanSwapChain implements AutoCloseable {
         return swapChainExtent;
     }
 
+    @Override
+    public VkExtent2D getExtent() {
+        return swapChainExtent;
+    }
+
+    @Override
+    public List<Long> getImages() {
+        return swapChainImages;
+    }
+
+    @Override
+    public int getFinalLayout() {
+        return VK_IMAGE_LAYOUT_PRESENT_SRC_KHR;
+    }
+
     public long getSwapChain() {
         return swapChain;
     }
 
+    @Override
     public int getImageFormat() {
         return swapChainImageFormat;
     }
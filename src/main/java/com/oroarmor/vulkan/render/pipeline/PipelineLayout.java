@@ -24,15 +24,73 @@
 
 package com.oroarmor.vulkan.render.pipeline;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oroarmor.vulkan.render.DescriptorBinding;
+import com.oroarmor.vulkan.render.DescriptorSetLayoutCache;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VkPipelineLayoutCreateInfo;
+import org.lwjgl.vulkan.VkPushConstantRange;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public record PipelineLayout(List<List<DescriptorBinding>> descriptorSets, List<PushConstantRange> pushConstants) {
+    public static final PipelineLayout EMPTY = new PipelineLayout(List.of());
+
+    public PipelineLayout {
+        descriptorSets = descriptorSets.stream().map(List::copyOf).toList();
+        pushConstants = List.copyOf(pushConstants);
+    }
+
+    public PipelineLayout(List<List<DescriptorBinding>> descriptorSets) {
+        this(descriptorSets, List.of());
+    }
+
+    public PipelineLayout withPushConstants(PushConstantRange... pushConstants) {
+        return new PipelineLayout(descriptorSets, List.of(pushConstants));
+    }
+
+    public boolean coversPushConstants(PushConstantRange used) {
+        for (int offset = used.offset(); offset < used.offset() + used.size(); offset += Integer.BYTES) {
+            boolean covered = false;
+            for (PushConstantRange range : pushConstants) {
+                if ((range.stageFlags() & used.stageFlags()) == used.stageFlags() && range.offset() <= offset && offset < range.offset() + range.size()) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-public class PipelineLayout {
-    public VkPipelineLayoutCreateInfo createPipelineLayout(MemoryStack stack) {
-        return null;
+    @SafeVarargs
+    public static PipelineLayout of(List<DescriptorBinding>... descriptorSets) {
+        // Copying element by element keeps the generic varargs array from escaping this method
+        List<List<DescriptorBinding>> sets = new ArrayList<>(descriptorSets.length);
+        for (List<DescriptorBinding> descriptorSet : descriptorSets) {
+            sets.add(descriptorSet);
+        }
+        return new PipelineLayout(sets);
     }
 
-    public long getLayout() {
-        return 0;
+    public VkPipelineLayoutCreateInfo createPipelineLayout(DescriptorSetLayoutCache cache, MemoryStack stack) {
+        VkPipelineLayoutCreateInfo pipelineLayoutInfo = VkPipelineLayoutCreateInfo.callocStack(stack);
+        pipelineLayoutInfo.sType(VK_STRUCTURE_TYPE_PIPELINE_LAYOUT_CREATE_INFO);
+        if (!descriptorSets.isEmpty()) {
+            pipelineLayoutInfo.pSetLayouts(stack.longs(descriptorSets.stream().mapToLong(cache::getSetLayout).toArray()));
+        }
+        if (!pushConstants.isEmpty()) {
+            VkPushConstantRange.Buffer ranges = VkPushConstantRange.callocStack(pushConstants.size(), stack);
+            for (int i = 0; i < pushConstants.size(); i++) {
+                PushConstantRange range = pushConstants.get(i);
+                ranges.get(i).stageFlags(range.stageFlags()).offset(range.offset()).size(range.size());
+            }
+            pipelineLayoutInfo.pPushConstantRanges(ranges);
+        }
+        return pipelineLayoutInfo;
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render.pipeline;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+@FunctionalInterface
+public interface PushConstantWriter<T> {
+    PushConstantWriter<Matrix4f> MATRIX_4F = (value, buffer) -> value.get(0, buffer);
+    PushConstantWriter<Vector4f> VECTOR_4F = (value, buffer) -> value.get(0, buffer);
+    PushConstantWriter<Vector3f> VECTOR_3F = (value, buffer) -> value.get(0, buffer);
+    PushConstantWriter<Vector2f> VECTOR_2F = (value, buffer) -> value.get(0, buffer);
+    PushConstantWriter<Float> FLOAT = (value, buffer) -> buffer.putFloat(0, value);
+    PushConstantWriter<Integer> INTEGER = (value, buffer) -> buffer.putInt(0, value);
+    PushConstantWriter<int[]> INTEGERS = (value, buffer) -> buffer.asIntBuffer().put(value);
+
+    void write(T value, ByteBuffer buffer);
+}
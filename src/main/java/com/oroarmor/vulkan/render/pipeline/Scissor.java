@@ -24,6 +24,8 @@
 
 package com.oroarmor.vulkan.render.pipeline;
 
+import java.util.Objects;
+
 import com.oroarmor.vulkan.render.VulkanRenderer;
 import org.joml.Vector2i;
 import org.lwjgl.system.MemoryStack;
@@ -39,7 +41,24 @@ public record Scissor(Vector2i offset, VkExtent2D extent) {
         return scissor;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Scissor other)) {
+            return false;
+        }
+        // VkExtent2D compares by address, so the extent is compared by value here
+        return offset.equals(other.offset) && extent.width() == other.extent.width() && extent.height() == other.extent.height();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, extent.width(), extent.height());
+    }
+
     public static Scissor getDefaultScissor(VulkanRenderer renderer) {
-        return new Scissor(new Vector2i(), renderer.getSwapChain().getSwapChainExtent());
+        return new Scissor(new Vector2i(), renderer.getRenderTarget().getExtent());
     }
 }
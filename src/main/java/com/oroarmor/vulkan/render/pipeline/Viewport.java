@@ -24,6 +24,8 @@
 
 package com.oroarmor.vulkan.render.pipeline;
 
+import java.util.Objects;
+
 import com.oroarmor.vulkan.render.VulkanRenderer;
 import org.joml.Vector2f;
 import org.joml.Vector2i;
@@ -42,7 +44,24 @@ public record Viewport(Vector2f position, VkExtent2D size, Vector2i depth) {
                 .maxDepth(depth.y);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Viewport other)) {
+            return false;
+        }
+        // VkExtent2D compares by address, so the extent is compared by value here
+        return position.equals(other.position) && depth.equals(other.depth) && size.width() == other.size.width() && size.height() == other.size.height();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(position, depth, size.width(), size.height());
+    }
+
     public static Viewport getDefaultViewport(VulkanRenderer renderer) {
-        return new Viewport(new Vector2f(), renderer.getSwapChain().getSwapChainExtent(), new Vector2i(0, 1));
+        return new Viewport(new Vector2f(), renderer.getRenderTarget().getExtent(), new Vector2i(0, 1));
     }
 }
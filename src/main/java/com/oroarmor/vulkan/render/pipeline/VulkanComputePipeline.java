@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.render.pipeline;
+
+import java.nio.LongBuffer;
+
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.Shader;
+import com.oroarmor.vulkan.util.VulkanUtil;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkComputePipelineCreateInfo;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+public class VulkanComputePipeline implements AutoCloseable {
+    protected final VulkanContext context;
+    protected final Shader shader;
+    protected final long layout;
+    protected final long pipeline;
+
+    public VulkanComputePipeline(VulkanContext context, Shader shader) {
+        if (!shader.isCompute() || shader.getStageToModule().size() != 1) {
+            throw new IllegalArgumentException("Compute pipelines need a shader with only a COMPUTE_SHADER stage, got " + shader.getShaderFile());
+        }
+
+        this.context = context;
+        this.shader = shader;
+        this.layout = context.getDescriptorSetLayoutCache().getPipelineLayout(shader.getPipelineLayout());
+        this.pipeline = createPipeline();
+    }
+
+    protected long createPipeline() {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkComputePipelineCreateInfo.Buffer pipelineInfo = VkComputePipelineCreateInfo.callocStack(1, stack);
+            pipelineInfo.sType(VK_STRUCTURE_TYPE_COMPUTE_PIPELINE_CREATE_INFO);
+            pipelineInfo.stage(shader.createShaderStages(stack).get(0));
+            pipelineInfo.layout(layout);
+
+            LongBuffer pPipeline = stack.mallocLong(1);
+            VulkanUtil.checkVulkanResult(vkCreateComputePipelines(context.getLogicalDevice().getDevice(), context.getPipelineCache().getPipelineCache(), pipelineInfo, null, pPipeline), "Failed to create compute pipeline");
+            return pPipeline.get(0);
+        }
+    }
+
+    public Shader getShader() {
+        return shader;
+    }
+
+    public long getLayout() {
+        return layout;
+    }
+
+    public long getPipeline() {
+        return pipeline;
+    }
+
+    @Override
+    public void close() {
+        long pipeline = this.pipeline;
+        context.getDeletionQueue().defer(() -> vkDestroyPipeline(context.getLogicalDevice().getDevice(), pipeline, null));
+    }
+}
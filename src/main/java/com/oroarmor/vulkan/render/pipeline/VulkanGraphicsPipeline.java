@@ -25,6 +25,11 @@
 package com.oroarmor.vulkan.render.pipeline;
 
 import java.nio.LongBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.oroarmor.vulkan.context.VulkanContext;
 import com.oroarmor.vulkan.render.Shader;
@@ -36,8 +41,19 @@ import org.lwjgl.vulkan.*;
 import static org.lwjgl.vulkan.VK10.*;
 
 public class VulkanGraphicsPipeline implements AutoCloseable {
+    public static final int DEFAULT_CACHE_CAPACITY = 64;
+    protected static final ExecutorService compileExecutor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+        Thread thread = new Thread(runnable, "Pipeline Compile Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     protected final VulkanContext context;
     protected final VulkanRenderer renderer;
+    protected final int cacheCapacity;
+    protected final Map<PipelineState, CompletableFuture<CompiledPipeline>> pipelines;
+    protected long cacheHits;
+    protected long cacheMisses;
 
     protected Shader shader;
     protected InputAssembly inputAssembly = InputAssembly.getDefaultInputAssembly();
@@ -47,70 +63,105 @@ public class VulkanGraphicsPipeline implements AutoCloseable {
     protected MultiSampler multiSampler = MultiSampler.getDefaultMultiSampler();
     protected ColorBlender colorBlender = ColorBlender.getDefaultColorBlender();
 
+    protected boolean dynamicViewportState = true;
     protected boolean changed = false;
-    protected long graphicsPipeline;
-    protected long pipelineLayout;
+    protected CompletableFuture<CompiledPipeline> currentPipeline;
+    protected CompileMode compileMode = CompileMode.SKIP;
+    protected Shader fallbackShader;
 
     public VulkanGraphicsPipeline(VulkanContext context, VulkanRenderer renderer) {
+        this(context, renderer, DEFAULT_CACHE_CAPACITY);
+    }
+
+    public VulkanGraphicsPipeline(VulkanContext context, VulkanRenderer renderer, int cacheCapacity) {
+        if (cacheCapacity < 1) {
+            throw new IllegalArgumentException("Pipeline cache capacity must be at least 1, got " + cacheCapacity);
+        }
         this.context = context;
         this.renderer = renderer;
-        scissor = Scissor.getDefaultScissor(this.renderer);
-        viewport = Viewport.getDefaultViewport(this.renderer);
+        this.cacheCapacity = cacheCapacity;
+        this.pipelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PipelineState, CompletableFuture<CompiledPipeline>> eldest) {
+                if (size() <= VulkanGraphicsPipeline.this.cacheCapacity) {
+                    return false;
+                }
+                retirePipeline(eldest.getValue());
+                return true;
+            }
+        };
     }
 
-    public void rebuildIfNeeded() {
-        if (changed) {
-            pipelineLayout = createPipelineLayout();
-            graphicsPipeline = createGraphicsPipeline();
+    public synchronized void rebuildIfNeeded() {
+        if (changed || currentPipeline == null) {
+            currentPipeline = requestPipeline(getState());
             changed = false;
         }
     }
 
-    protected long createGraphicsPipeline() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            VkPipelineShaderStageCreateInfo.Buffer shaderStages = shader.createShaderStages(stack);
+    protected synchronized CompletableFuture<CompiledPipeline> requestPipeline(PipelineState state) {
+        CompletableFuture<CompiledPipeline> pipeline = pipelines.get(state);
+        if (pipeline != null) {
+            cacheHits++;
+            return pipeline;
+        }
+        cacheMisses++;
+        pipeline = CompletableFuture.supplyAsync(() -> compilePipeline(state), compileExecutor);
+        pipelines.put(state, pipeline);
+        return pipeline;
+    }
+
+    protected CompiledPipeline compilePipeline(PipelineState state) {
+        long layout = context.getDescriptorSetLayoutCache().getPipelineLayout(state.shader().getPipelineLayout());
+        return new CompiledPipeline(createGraphicsPipeline(state, layout), layout);
+    }
 
-            VkPipelineVertexInputStateCreateInfo vertexInputInfo = this.shader.getVertexInput().createVertexInputState(stack);
+    public PipelineState getState() {
+        if (dynamicViewportState) {
+            return new PipelineState(shader, inputAssembly, rasterizer, multiSampler, colorBlender, true, null, null, renderer.getRenderPass().getRenderPass());
+        }
+        return new PipelineState(shader, inputAssembly, rasterizer, multiSampler, colorBlender, false, getViewport(), getScissor(), renderer.getRenderPass().getRenderPass());
+    }
 
-            VkPipelineInputAssemblyStateCreateInfo inputAssembly = this.inputAssembly.createInputAssembly(stack);
+    protected long createGraphicsPipeline(PipelineState state, long layout) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkPipelineShaderStageCreateInfo.Buffer shaderStages = state.shader().createShaderStages(stack);
 
-            VkViewport.Buffer viewport = this.viewport.createVkViewport(stack);
-            VkRect2D.Buffer scissor = this.scissor.createVkRect2D(stack);
+            VkPipelineVertexInputStateCreateInfo vertexInputInfo = state.shader().getVertexInput().createVertexInputState(stack);
+
+            VkPipelineInputAssemblyStateCreateInfo inputAssembly = state.inputAssembly().createInputAssembly(stack);
 
             VkPipelineViewportStateCreateInfo viewportState = VkPipelineViewportStateCreateInfo.callocStack(stack);
             viewportState.sType(VK_STRUCTURE_TYPE_PIPELINE_VIEWPORT_STATE_CREATE_INFO);
-            viewportState.pViewports(viewport);
-            viewportState.pScissors(scissor);
-
-            VkPipelineRasterizationStateCreateInfo rasterizer = this.rasterizer.createRasterizer(stack);
-            VkPipelineMultisampleStateCreateInfo multisampling = this.multiSampler.createMultisampler(stack);
-            VkPipelineColorBlendStateCreateInfo colorBlending = this.colorBlender.createColorBlendState(stack);
-
-            VkGraphicsPipelineCreateInfo.Buffer pipelineInfo = createGraphicsPipelineInfo(stack, shaderStages, vertexInputInfo, inputAssembly, viewportState, rasterizer, multisampling, colorBlending);
+            VkPipelineDynamicStateCreateInfo dynamicState = null;
+            if (state.dynamicViewportState()) {
+                viewportState.viewportCount(1);
+                viewportState.scissorCount(1);
+
+                dynamicState = VkPipelineDynamicStateCreateInfo.callocStack(stack);
+                dynamicState.sType(VK_STRUCTURE_TYPE_PIPELINE_DYNAMIC_STATE_CREATE_INFO);
+                dynamicState.pDynamicStates(stack.ints(VK_DYNAMIC_STATE_VIEWPORT, VK_DYNAMIC_STATE_SCISSOR));
+            } else {
+                viewportState.pViewports(state.viewport().createVkViewport(stack));
+                viewportState.pScissors(state.scissor().createVkRect2D(stack));
+            }
+
+            VkPipelineRasterizationStateCreateInfo rasterizer = state.rasterizer().createRasterizer(stack);
+            VkPipelineMultisampleStateCreateInfo multisampling = state.multiSampler().createMultisampler(stack);
+            VkPipelineColorBlendStateCreateInfo colorBlending = state.colorBlender().createColorBlendState(stack);
+
+            VkGraphicsPipelineCreateInfo.Buffer pipelineInfo = createGraphicsPipelineInfo(stack, state, layout, shaderStages, vertexInputInfo, inputAssembly, viewportState, rasterizer, multisampling, colorBlending);
+            pipelineInfo.pDynamicState(dynamicState);
 
             LongBuffer pGraphicsPipeline = stack.mallocLong(1);
 
-            VulkanUtil.checkVulkanResult(vkCreateGraphicsPipelines(context.getLogicalDevice().getDevice(), VK_NULL_HANDLE, pipelineInfo, null, pGraphicsPipeline), "Failed to create graphics pipeline");
+            VulkanUtil.checkVulkanResult(vkCreateGraphicsPipelines(context.getLogicalDevice().getDevice(), context.getPipelineCache().getPipelineCache(), pipelineInfo, null, pGraphicsPipeline), "Failed to create graphics pipeline");
 
             return pGraphicsPipeline.get(0);
         }
     }
 
-    private long createPipelineLayout() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            VkPipelineLayoutCreateInfo pipelineLayoutInfo = VkPipelineLayoutCreateInfo.callocStack(stack);
-            pipelineLayoutInfo.sType(VK_STRUCTURE_TYPE_PIPELINE_LAYOUT_CREATE_INFO);
-//        pipelineLayoutInfo.pSetLayouts(stack.longs(VulkanDescriptorSets.descriptorSetLayout));
-
-            LongBuffer pLayoutInfo = stack.longs(VK_NULL_HANDLE);
-
-            VulkanUtil.checkVulkanResult(vkCreatePipelineLayout(context.getLogicalDevice().getDevice(), pipelineLayoutInfo, null, pLayoutInfo), "Unable to create pipeline layout");
-
-            return pLayoutInfo.get(0);
-        }
-    }
-
-    protected VkGraphicsPipelineCreateInfo.Buffer createGraphicsPipelineInfo(MemoryStack stack, VkPipelineShaderStageCreateInfo.Buffer shaderStages, VkPipelineVertexInputStateCreateInfo vertexInputInfo, VkPipelineInputAssemblyStateCreateInfo inputAssembly, VkPipelineViewportStateCreateInfo viewportState, VkPipelineRasterizationStateCreateInfo rasterizer, VkPipelineMultisampleStateCreateInfo multisampling, VkPipelineColorBlendStateCreateInfo colorBlending) {
+    protected VkGraphicsPipelineCreateInfo.Buffer createGraphicsPipelineInfo(MemoryStack stack, PipelineState state, long layout, VkPipelineShaderStageCreateInfo.Buffer shaderStages, VkPipelineVertexInputStateCreateInfo vertexInputInfo, VkPipelineInputAssemblyStateCreateInfo inputAssembly, VkPipelineViewportStateCreateInfo viewportState, VkPipelineRasterizationStateCreateInfo rasterizer, VkPipelineMultisampleStateCreateInfo multisampling, VkPipelineColorBlendStateCreateInfo colorBlending) {
         VkGraphicsPipelineCreateInfo.Buffer pipelineInfo = VkGraphicsPipelineCreateInfo.callocStack(1, stack);
 
         pipelineInfo.sType(VK_STRUCTURE_TYPE_GRAPHICS_PIPELINE_CREATE_INFO);
@@ -123,25 +174,132 @@ public class VulkanGraphicsPipeline implements AutoCloseable {
         pipelineInfo.pMultisampleState(multisampling);
         pipelineInfo.pColorBlendState(colorBlending);
 
-        pipelineInfo.layout(pipelineLayout);
-        pipelineInfo.renderPass(this.renderer.getRenderPass().getRenderPass());
+        pipelineInfo.layout(layout);
+        pipelineInfo.renderPass(state.renderPass());
         pipelineInfo.subpass(0);
         pipelineInfo.basePipelineHandle(VK_NULL_HANDLE);
         pipelineInfo.basePipelineIndex(-1);
         return pipelineInfo;
     }
 
-    public void close() {
-        vkDestroyPipeline(context.getLogicalDevice().getDevice(), graphicsPipeline, null);
-        vkDestroyPipelineLayout(context.getLogicalDevice().getDevice(), pipelineLayout, null);
+    // Cached recordings, including the one being recorded now, may bind the pipeline, so none of them can be submitted again
+    protected synchronized void retirePipeline(CompletableFuture<CompiledPipeline> pipeline) {
+        if (pipeline == currentPipeline) {
+            currentPipeline = null;
+            changed = true;
+        }
+        pipeline.thenAccept(this::destroyPipeline);
+        renderer.invalidateRecordings();
+        renderer.markRecordingSingleUse();
+    }
+
+    protected void destroyPipeline(CompiledPipeline pipeline) {
+        context.getDeletionQueue().defer(() -> {
+            vkDestroyPipeline(context.getLogicalDevice().getDevice(), pipeline.pipeline(), null);
+        });
+    }
+
+    public synchronized void close() {
+        // Compiles still running use the device, so they have to land before the pipelines are handed off
+        CompletableFuture.allOf(pipelines.values().toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        pipelines.values().forEach(pipeline -> {
+            if (!pipeline.isCompletedExceptionally()) {
+                destroyPipeline(pipeline.join());
+            }
+        });
+        pipelines.clear();
+        currentPipeline = null;
+        changed = true;
+    }
+
+    public synchronized void invalidate(Shader shader) {
+        pipelines.entrySet().removeIf(entry -> {
+            if (entry.getKey().shader() != shader) {
+                return false;
+            }
+            retirePipeline(entry.getValue());
+            return true;
+        });
+        changed = true;
+    }
+
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public synchronized int getCachedPipelineCount() {
+        return pipelines.size();
+    }
+
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    public synchronized long getPipeline() {
+        return currentPipeline != null && currentPipeline.isDone() ? currentPipeline.join().pipeline() : VK_NULL_HANDLE;
+    }
+
+    public synchronized long getPipelineLayout() {
+        return currentPipeline != null && currentPipeline.isDone() ? currentPipeline.join().layout() : VK_NULL_HANDLE;
+    }
+
+    public synchronized CompletableFuture<CompiledPipeline> getPipelineAsync(Shader shader) {
+        setShader(shader);
+        rebuildIfNeeded();
+        return currentPipeline;
+    }
+
+    public CompletableFuture<CompiledPipeline> prepare(Shader shader) {
+        return requestPipeline(getState().withShader(shader));
+    }
+
+    public long getPipeline(Shader shader) {
+        CompletableFuture<CompiledPipeline> pipeline = getPipelineAsync(shader);
+        if (pipeline.isDone()) {
+            return pipeline.join().pipeline();
+        }
+
+        switch (compileMode) {
+            case BLOCK -> renderer.getProfiler().count("Render thread blocked on pipeline compile");
+            case SKIP -> {
+                renderer.getProfiler().count("Render step skipped for pipeline compile");
+                renderer.markRecordingSingleUse();
+                return VK_NULL_HANDLE;
+            }
+            case FALLBACK -> {
+                renderer.getProfiler().count("Fallback pipeline used for pipeline compile");
+                renderer.markRecordingSingleUse();
+                if (fallbackShader == null || fallbackShader == shader) {
+                    return VK_NULL_HANDLE;
+                }
+                return prepare(fallbackShader).join().pipeline();
+            }
+        }
+        return pipeline.join().pipeline();
+    }
+
+    public CompileMode getCompileMode() {
+        return compileMode;
     }
 
-    public long getPipeline() {
-        return graphicsPipeline;
+    public void setCompileMode(CompileMode compileMode) {
+        this.compileMode = compileMode;
     }
 
-    public long getPipelineLayout() {
-        return pipelineLayout;
+    public Shader getFallbackShader() {
+        return fallbackShader;
+    }
+
+    // The fallback has to accept the same vertex input as the shaders it stands in for
+    public void setFallbackShader(Shader fallbackShader) {
+        this.fallbackShader = fallbackShader;
+        if (fallbackShader != null) {
+            prepare(fallbackShader);
+        }
     }
 
     public void setShader(Shader shader) {
@@ -157,14 +315,32 @@ public class VulkanGraphicsPipeline implements AutoCloseable {
         changed = true;
     }
 
+    public Viewport getViewport() {
+        return viewport != null ? viewport : Viewport.getDefaultViewport(renderer);
+    }
+
+    public Scissor getScissor() {
+        return scissor != null ? scissor : Scissor.getDefaultScissor(renderer);
+    }
+
+    public boolean isDynamicViewportState() {
+        return dynamicViewportState;
+    }
+
+    public void setDynamicViewportState(boolean dynamicViewportState) {
+        this.dynamicViewportState = dynamicViewportState;
+        changed = true;
+    }
+
+    // A null viewport or scissor follows the extent of the render target
     public void setViewport(Viewport viewport) {
         this.viewport = viewport;
-        changed = true;
+        changed |= !dynamicViewportState;
     }
 
     public void setScissor(Scissor scissor) {
         this.scissor = scissor;
-        changed = true;
+        changed |= !dynamicViewportState;
     }
 
     public void setRasterizer(Rasterizer rasterizer) {
@@ -181,4 +357,11 @@ public class VulkanGraphicsPipeline implements AutoCloseable {
         this.colorBlender = colorBlender;
         changed = true;
     }
+
+    public record CompiledPipeline(long pipeline, long layout) {
+    }
+
+    public enum CompileMode {
+        BLOCK, SKIP, FALLBACK
+    }
 }
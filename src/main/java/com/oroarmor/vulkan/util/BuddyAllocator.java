@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+public class BuddyAllocator {
+    public static final long INVALID_OFFSET = -1;
+
+    protected final long size;
+    protected final long minBlockSize;
+    protected final int maxOrder;
+    protected final List<LinkedHashSet<Long>> freeBlocks;
+    protected final Map<Long, Integer> allocatedOrders;
+    protected final Map<Long, Long> requestedSizes;
+    protected long allocatedBytes;
+    protected long requestedBytes;
+
+    public BuddyAllocator(long size, long minBlockSize) {
+        if (Long.bitCount(size) != 1 || Long.bitCount(minBlockSize) != 1 || minBlockSize > size) {
+            throw new IllegalArgumentException("Buddy allocator sizes must be powers of two with minBlockSize <= size, got " + size + " and " + minBlockSize);
+        }
+        this.size = size;
+        this.minBlockSize = minBlockSize;
+        this.maxOrder = Long.numberOfTrailingZeros(size / minBlockSize);
+        this.freeBlocks = new ArrayList<>(maxOrder + 1);
+        for (int order = 0; order <= maxOrder; order++) {
+            freeBlocks.add(new LinkedHashSet<>());
+        }
+        freeBlocks.get(maxOrder).add(0L);
+        this.allocatedOrders = new HashMap<>();
+        this.requestedSizes = new HashMap<>();
+    }
+
+    public long allocate(long requestedSize, long alignment) {
+        if (requestedSize <= 0) {
+            throw new IllegalArgumentException("Allocation size must be positive, got " + requestedSize);
+        }
+        if (alignment <= 0 || Long.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("Alignment must be a power of two, got " + alignment);
+        }
+
+        // Buddy blocks are naturally aligned to their own size, so a block at least as large as the alignment is aligned
+        long blockSize = Math.max(Math.max(nextPowerOfTwo(requestedSize), alignment), minBlockSize);
+        if (blockSize > size) {
+            return INVALID_OFFSET;
+        }
+
+        int order = orderOf(blockSize);
+        int freeOrder = order;
+        while (freeOrder <= maxOrder && freeBlocks.get(freeOrder).isEmpty()) {
+            freeOrder++;
+        }
+        if (freeOrder > maxOrder) {
+            return INVALID_OFFSET;
+        }
+
+        long offset = removeFirst(freeBlocks.get(freeOrder));
+        while (freeOrder > order) {
+            freeOrder--;
+            freeBlocks.get(freeOrder).add(offset + blockSizeOf(freeOrder));
+        }
+
+        allocatedOrders.put(offset, order);
+        requestedSizes.put(offset, requestedSize);
+        allocatedBytes += blockSize;
+        requestedBytes += requestedSize;
+        return offset;
+    }
+
+    public void free(long offset) {
+        Integer allocatedOrder = allocatedOrders.remove(offset);
+        if (allocatedOrder == null) {
+            throw new IllegalArgumentException("No allocation at offset " + offset);
+        }
+        int order = allocatedOrder;
+        allocatedBytes -= blockSizeOf(order);
+        requestedBytes -= requestedSizes.remove(offset);
+
+        while (order < maxOrder) {
+            long buddy = offset ^ blockSizeOf(order);
+            if (!freeBlocks.get(order).remove(buddy)) {
+                break;
+            }
+            offset = Math.min(offset, buddy);
+            order++;
+        }
+        freeBlocks.get(order).add(offset);
+    }
+
+    public boolean isEmpty() {
+        return allocatedOrders.isEmpty();
+    }
+
+    public int getAllocationCount() {
+        return allocatedOrders.size();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getRequestedBytes() {
+        return requestedBytes;
+    }
+
+    public long getFreeBytes() {
+        return size - allocatedBytes;
+    }
+
+    public long getLargestFreeBlock() {
+        for (int order = maxOrder; order >= 0; order--) {
+            if (!freeBlocks.get(order).isEmpty()) {
+                return blockSizeOf(order);
+            }
+        }
+        return 0;
+    }
+
+    public double getUtilization() {
+        return (double) requestedBytes / size;
+    }
+
+    public double getFragmentation() {
+        long freeBytes = getFreeBytes();
+        return freeBytes == 0 ? 0 : 1 - (double) getLargestFreeBlock() / freeBytes;
+    }
+
+    protected long blockSizeOf(int order) {
+        return minBlockSize << order;
+    }
+
+    protected int orderOf(long blockSize) {
+        return Long.numberOfTrailingZeros(blockSize / minBlockSize);
+    }
+
+    private static long removeFirst(LinkedHashSet<Long> blocks) {
+        Long first = blocks.iterator().next();
+        blocks.remove(first);
+        return first;
+    }
+
+    public static long nextPowerOfTwo(long value) {
+        return value <= 1 ? 1 : Long.highestOneBit(value - 1) << 1;
+    }
+}
@@ -25,14 +25,18 @@
 package com.oroarmor.vulkan.util;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Profiler {
     private final Stack<Long> times;
     private final Stack<ProfilerStep> steps;
+    private final Map<String, LongAdder> counters;
 
     public Profiler(String name) {
         steps = new Stack<>();
         times = new Stack<>();
+        counters = new ConcurrentHashMap<>();
         steps.push(new ProfilerStep(name));
     }
 
@@ -56,16 +60,28 @@ public class Profiler {
         this.pop();
     }
 
+    public void count(String name) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
     public void clear() {
         while (steps.size() > 1) {
             pop();
         }
         steps.peek().clear();
         times.clear();
+        counters.clear();
     }
 
     public String dump() {
-        return steps.get(0).dump(0);
+        StringBuilder dump = new StringBuilder(steps.get(0).dump(0));
+        new TreeMap<>(counters).forEach((name, count) -> dump.append(String.format("%n|# %s : %d", name, count.sum())));
+        return dump.toString();
     }
 
     private static class ProfilerStep {
@@ -0,0 +1,43 @@
+#stage COMPUTE_SHADER
+
+#version 450
+
+layout(local_size_x = 256) in;
+
+layout(std430, set = 0, binding = 0) buffer Values {
+    uint values[];
+};
+
+layout(std430, set = 0, binding = 1) buffer Flags {
+    uint flags[];
+};
+
+layout(std430, set = 0, binding = 2) buffer Offsets {
+    uint offsets[];
+};
+
+layout(std430, set = 0, binding = 3) buffer Output {
+    uint outputValues[];
+};
+
+layout(std430, set = 0, binding = 4) buffer CompactedCount {
+    uint compactedCount;
+};
+
+layout(push_constant) uniform Parameters {
+    uint count;
+} parameters;
+
+void main() {
+    uint index = gl_GlobalInvocationID.x;
+    if (index >= parameters.count) {
+        return;
+    }
+
+    if (flags[index] != 0u) {
+        outputValues[offsets[index]] = values[index];
+    }
+    if (index == parameters.count - 1u) {
+        compactedCount = offsets[index] + flags[index];
+    }
+}
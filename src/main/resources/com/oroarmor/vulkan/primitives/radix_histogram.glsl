@@ -0,0 +1,40 @@
+#stage COMPUTE_SHADER
+
+#version 450
+
+layout(local_size_x = 256) in;
+
+layout(std430, set = 0, binding = 0) buffer Keys {
+    uint keys[];
+};
+
+layout(std430, set = 0, binding = 1) buffer Histogram {
+    uint histogram[];
+};
+
+layout(push_constant) uniform Parameters {
+    uint count;
+    uint shift;
+    uint blockCount;
+} parameters;
+
+shared uint bins[16];
+
+void main() {
+    uint local = gl_LocalInvocationID.x;
+    uint index = gl_GlobalInvocationID.x;
+    if (local < 16u) {
+        bins[local] = 0u;
+    }
+    barrier();
+
+    if (index < parameters.count) {
+        atomicAdd(bins[(keys[index] >> parameters.shift) & 15u], 1u);
+    }
+    barrier();
+
+    // Digit major, so the scan of the whole histogram gives every block its output offset per digit
+    if (local < 16u) {
+        histogram[local * parameters.blockCount + gl_WorkGroupID.x] = bins[local];
+    }
+}
@@ -0,0 +1,57 @@
+#stage COMPUTE_SHADER
+
+#version 450
+
+layout(local_size_x = 256) in;
+
+layout(std430, set = 0, binding = 0) buffer KeysIn {
+    uint keysIn[];
+};
+
+layout(std430, set = 0, binding = 1) buffer ValuesIn {
+    uint valuesIn[];
+};
+
+layout(std430, set = 0, binding = 2) buffer Offsets {
+    uint offsets[];
+};
+
+layout(std430, set = 0, binding = 3) buffer KeysOut {
+    uint keysOut[];
+};
+
+layout(std430, set = 0, binding = 4) buffer ValuesOut {
+    uint valuesOut[];
+};
+
+layout(push_constant) uniform Parameters {
+    uint count;
+    uint shift;
+    uint blockCount;
+} parameters;
+
+shared uint digits[256];
+
+void main() {
+    uint local = gl_LocalInvocationID.x;
+    uint index = gl_GlobalInvocationID.x;
+    uint digit = index < parameters.count ? (keysIn[index] >> parameters.shift) & 15u : 16u;
+    digits[local] = digit;
+    barrier();
+
+    if (index >= parameters.count) {
+        return;
+    }
+
+    // Counting earlier lanes with the same digit keeps the sort stable across passes
+    uint rank = 0u;
+    for (uint i = 0u; i < local; i++) {
+        if (digits[i] == digit) {
+            rank++;
+        }
+    }
+
+    uint destination = offsets[digit * parameters.blockCount + gl_WorkGroupID.x] + rank;
+    keysOut[destination] = keysIn[index];
+    valuesOut[destination] = valuesIn[index];
+}
@@ -0,0 +1,52 @@
+#stage COMPUTE_SHADER
+
+#version 450
+
+layout(local_size_x = 256) in;
+
+layout(std430, set = 0, binding = 0) buffer Input {
+    uint inputValues[];
+};
+
+layout(std430, set = 0, binding = 1) buffer Output {
+    uint outputValues[];
+};
+
+layout(push_constant) uniform Parameters {
+    uint count;
+    uint operation;
+} parameters;
+
+shared uint values[256];
+
+uint identity() {
+    return parameters.operation == 1u ? 0xFFFFFFFFu : 0u;
+}
+
+uint combine(uint a, uint b) {
+    if (parameters.operation == 1u) {
+        return min(a, b);
+    }
+    if (parameters.operation == 2u) {
+        return max(a, b);
+    }
+    return a + b;
+}
+
+void main() {
+    uint local = gl_LocalInvocationID.x;
+    uint index = gl_GlobalInvocationID.x;
+    values[local] = index < parameters.count ? inputValues[index] : identity();
+    barrier();
+
+    for (uint stride = 128u; stride > 0u; stride >>= 1) {
+        if (local < stride) {
+            values[local] = combine(values[local], values[local + stride]);
+        }
+        barrier();
+    }
+
+    if (local == 0u) {
+        outputValues[gl_WorkGroupID.x] = values[0];
+    }
+}
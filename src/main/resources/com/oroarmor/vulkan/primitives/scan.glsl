@@ -0,0 +1,45 @@
+#stage COMPUTE_SHADER
+
+#version 450
+
+layout(local_size_x = 256) in;
+
+layout(std430, set = 0, binding = 0) buffer Input {
+    uint inputValues[];
+};
+
+layout(std430, set = 0, binding = 1) buffer Output {
+    uint outputValues[];
+};
+
+layout(std430, set = 0, binding = 2) buffer BlockSums {
+    uint blockSums[];
+};
+
+layout(push_constant) uniform Parameters {
+    uint count;
+} parameters;
+
+shared uint values[256];
+
+void main() {
+    uint local = gl_LocalInvocationID.x;
+    uint index = gl_GlobalInvocationID.x;
+    uint value = index < parameters.count ? inputValues[index] : 0u;
+    values[local] = value;
+    barrier();
+
+    for (uint offset = 1u; offset < 256u; offset <<= 1) {
+        uint addend = local >= offset ? values[local - offset] : 0u;
+        barrier();
+        values[local] += addend;
+        barrier();
+    }
+
+    if (index < parameters.count) {
+        outputValues[index] = values[local] - value;
+    }
+    if (local == 255u) {
+        blockSums[gl_WorkGroupID.x] = values[local];
+    }
+}
@@ -0,0 +1,24 @@
+#stage COMPUTE_SHADER
+
+#version 450
+
+layout(local_size_x = 256) in;
+
+layout(std430, set = 0, binding = 0) buffer Values {
+    uint values[];
+};
+
+layout(std430, set = 0, binding = 1) buffer BlockOffsets {
+    uint blockOffsets[];
+};
+
+layout(push_constant) uniform Parameters {
+    uint count;
+} parameters;
+
+void main() {
+    uint index = gl_GlobalInvocationID.x;
+    if (index < parameters.count) {
+        values[index] += blockOffsets[gl_WorkGroupID.x];
+    }
+}
@@ -0,0 +1,31 @@
+#stage COMPUTE_SHADER
+
+#version 450
+#extension GL_ARB_separate_shader_objects : enable
+
+layout(local_size_x = 64) in;
+
+struct Particle {
+    vec2 position;
+    vec2 velocity;
+};
+
+layout(std430, set = 0, binding = 0) buffer Particles {
+    Particle particles[];
+};
+
+layout(push_constant) uniform Parameters {
+    float deltaTime;
+    uint count;
+} parameters;
+
+void main() {
+    uint index = gl_GlobalInvocationID.x;
+    if (index >= parameters.count) {
+        return;
+    }
+
+    Particle particle = particles[index];
+    particle.position += particle.velocity * parameters.deltaTime;
+    particles[index] = particle;
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oroarmor.vulkan.benchmark;
+
+import com.oroarmor.vulkan.VulkanTestContexts;
+import com.oroarmor.vulkan.context.VulkanContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComputeBenchmarkTest {
+    private static VulkanContext context;
+
+    @BeforeAll
+    public static void createContext() {
+        context = VulkanTestContexts.createOrSkip();
+    }
+
+    @AfterAll
+    public static void closeContext() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    public void particleStepsMatchTheCPU() {
+        for (int particles : new int[]{1, ComputeBenchmark.LOCAL_SIZE - 1, ComputeBenchmark.LOCAL_SIZE, ComputeBenchmark.LOCAL_SIZE + 1, 10000}) {
+            float[] expected = ComputeBenchmark.createParticles(particles, particles);
+            float[] actual = ComputeBenchmark.stepOnGPU(context, expected, 10).particles();
+            ComputeBenchmark.stepOnCPU(expected, 10);
+
+            assertArrayEquals(expected, actual, 1e-5f, particles + " particles");
+        }
+    }
+
+    @Test
+    public void zeroStepsLeaveParticlesUnchanged() {
+        float[] particles = ComputeBenchmark.createParticles(100, 1);
+
+        assertArrayEquals(particles, ComputeBenchmark.stepOnGPU(context, particles, 0).particles());
+    }
+}
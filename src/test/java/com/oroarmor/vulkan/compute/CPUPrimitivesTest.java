@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oroarmor.vulkan.compute;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CPUPrimitivesTest {
+    @Test
+    public void sortKeepsEqualKeysInTheirOriginalOrder() {
+        int[] keys = {3, 1, 3, 2, 1, 3};
+        int[] values = {0, 1, 2, 3, 4, 5};
+
+        CPUPrimitives.sort(keys, values);
+
+        assertArrayEquals(new int[]{1, 1, 2, 3, 3, 3}, keys);
+        assertArrayEquals(new int[]{1, 4, 3, 0, 2, 5}, values);
+    }
+
+    @Test
+    public void sortOrdersKeysAsUnsigned() {
+        int[] keys = {-1, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 1};
+        int[] values = {0, 1, 2, 3, 4};
+
+        CPUPrimitives.sort(keys, values);
+
+        assertArrayEquals(new int[]{0, 1, Integer.MAX_VALUE, Integer.MIN_VALUE, -1}, keys);
+        assertArrayEquals(new int[]{1, 4, 3, 2, 0}, values);
+    }
+
+    @Test
+    public void sortHandlesEmptyInput() {
+        int[] keys = {};
+        int[] values = {};
+
+        CPUPrimitives.sort(keys, values);
+
+        assertEquals(0, keys.length);
+        assertEquals(0, values.length);
+    }
+
+    @Test
+    public void exclusiveScanStartsAtZero() {
+        assertArrayEquals(new int[]{0, 1, 3, 6}, CPUPrimitives.exclusiveScan(new int[]{1, 2, 3, 4}));
+        assertArrayEquals(new int[0], CPUPrimitives.exclusiveScan(new int[0]));
+    }
+
+    @Test
+    public void compactKeepsFlaggedValuesInOrder() {
+        assertArrayEquals(new int[]{10, 30, 40}, CPUPrimitives.compact(new int[]{10, 20, 30, 40}, new int[]{1, 0, 1, 1}));
+    }
+
+    @Test
+    public void reduceOfEmptyInputIsTheIdentity() {
+        for (VulkanPrimitives.ReduceOperation operation : VulkanPrimitives.ReduceOperation.values()) {
+            assertEquals(operation.identity(), CPUPrimitives.reduce(new int[0], operation));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oroarmor.vulkan.compute;
+
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.oroarmor.vulkan.VulkanTestContexts;
+import com.oroarmor.vulkan.context.VulkanContext;
+import com.oroarmor.vulkan.render.VulkanBuffer;
+import com.oroarmor.vulkan.render.VulkanComputeDispatcher;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VulkanPrimitivesTest {
+    private static VulkanContext context;
+    private static VulkanComputeDispatcher dispatcher;
+    private static VulkanPrimitives primitives;
+
+    @BeforeAll
+    public static void createPrimitives() {
+        context = VulkanTestContexts.createOrSkip();
+        dispatcher = new VulkanComputeDispatcher(context);
+        primitives = new VulkanPrimitives(context, dispatcher);
+    }
+
+    @AfterAll
+    public static void closePrimitives() {
+        if (primitives != null) {
+            primitives.close();
+        }
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    // Past 4096 elements the radix histogram has more than BLOCK_SIZE entries, so its scan needs a second level
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 255, 256, 257, 1000, 4096, 4097, 65536 + 3})
+    public void exclusiveScanMatchesTheCPU(int size) {
+        int[] values = new Random(size).ints(size, 0, 1024).toArray();
+        try (VulkanBuffer input = createBuffer(values);
+             VulkanBuffer output = createBuffer(new int[size])) {
+            primitives.exclusiveScan(input, output, size).join();
+
+            assertArrayEquals(CPUPrimitives.exclusiveScan(values), read(output, size));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 255, 256, 257, 1000, 4097, 65536 + 3})
+    public void reduceMatchesTheCPU(int size) {
+        int[] values = new Random(size).ints(size).toArray();
+        try (VulkanBuffer input = createBuffer(values)) {
+            for (VulkanPrimitives.ReduceOperation operation : VulkanPrimitives.ReduceOperation.values()) {
+                assertEquals(CPUPrimitives.reduce(values, operation), primitives.reduce(input, size, operation).join(), operation.name());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 255, 256, 257, 1000, 4097, 65536 + 3})
+    public void compactMatchesTheCPU(int size) {
+        Random random = new Random(size);
+        int[] values = random.ints(size).toArray();
+        int[] flags = random.ints(size, 0, 2).toArray();
+        try (VulkanBuffer valueBuffer = createBuffer(values);
+             VulkanBuffer flagBuffer = createBuffer(flags);
+             VulkanBuffer output = createBuffer(new int[size])) {
+            int count = primitives.compact(valueBuffer, flagBuffer, output, size).join();
+
+            assertArrayEquals(CPUPrimitives.compact(values, flags), read(output, count));
+        }
+    }
+
+    // Few distinct keys with the high bit in play, so both stability and unsigned ordering show up in the result
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 255, 256, 257, 1000, 4096, 4097, 65536 + 3})
+    public void sortMatchesTheCPU(int size) {
+        int[] keys = new Random(size).ints(size).map(key -> key & 0xF000000F).toArray();
+        int[] values = IntStream.range(0, size).toArray();
+        try (VulkanBuffer keyBuffer = createBuffer(keys);
+             VulkanBuffer valueBuffer = createBuffer(values)) {
+            primitives.sort(keyBuffer, valueBuffer, size).join();
+
+            CPUPrimitives.sort(keys, values);
+            assertArrayEquals(keys, read(keyBuffer, size));
+            assertArrayEquals(values, read(valueBuffer, size));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(VulkanPrimitives.ReduceOperation.class)
+    public void emptyReduceReturnsTheIdentity(VulkanPrimitives.ReduceOperation operation) {
+        try (VulkanBuffer input = createBuffer(new int[0])) {
+            assertEquals(operation.identity(), primitives.reduce(input, 0, operation).join());
+        }
+    }
+
+    private static VulkanBuffer createBuffer(int[] data) {
+        return new VulkanBuffer(context, VulkanPrimitives.UINT_LAYOUT, data.length > 0 ? data : new int[1], VulkanComputeDispatcher.STORAGE_BUFFER_USAGE);
+    }
+
+    // Vulkan rejects zero sized copies, so empty results are never read back
+    private static int[] read(VulkanBuffer buffer, int count) {
+        int[] values = new int[count];
+        if (count > 0) {
+            IntBuffer data = dispatcher.readback(buffer, 0, (long) count * Integer.BYTES).join().asIntBuffer();
+            data.get(values);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 OroArmor (Eli Orona)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.oroarmor.vulkan.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuddyAllocatorTest {
+    @Test
+    public void splitsLargerBlocksForSmallAllocations() {
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+
+        assertEquals(0, allocator.allocate(64, 1));
+        assertEquals(64, allocator.allocate(64, 1));
+        assertEquals(128, allocator.allocate(128, 1));
+        assertEquals(256, allocator.allocate(256, 1));
+        assertEquals(512, allocator.getLargestFreeBlock());
+        assertEquals(512, allocator.getAllocatedBytes());
+        assertEquals(4, allocator.getAllocationCount());
+    }
+
+    @Test
+    public void roundsAllocationsUpToBlockSizes() {
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+
+        allocator.allocate(100, 1);
+        allocator.allocate(1, 1);
+        assertEquals(128 + 64, allocator.getAllocatedBytes());
+        assertEquals(101, allocator.getRequestedBytes());
+    }
+
+    @Test
+    public void mergesBuddiesWhenFreed() {
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+        long[] offsets = new long[4];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = allocator.allocate(256, 1);
+        }
+
+        allocator.free(offsets[1]);
+        allocator.free(offsets[2]);
+        assertEquals(256, allocator.getLargestFreeBlock());
+        allocator.free(offsets[0]);
+        assertEquals(512, allocator.getLargestFreeBlock());
+        allocator.free(offsets[3]);
+
+        assertTrue(allocator.isEmpty());
+        assertEquals(1024, allocator.getLargestFreeBlock());
+        assertEquals(0, allocator.allocate(1024, 1));
+    }
+
+    @Test
+    public void alignsOffsetsToTheRequestedAlignment() {
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+
+        assertEquals(0, allocator.allocate(64, 64));
+        long aligned = allocator.allocate(64, 256);
+        assertEquals(256, aligned);
+        assertEquals(64 + 256, allocator.getAllocatedBytes());
+
+        for (int i = 0; i < 8; i++) {
+            long offset = allocator.allocate(8, 16);
+            if (offset != BuddyAllocator.INVALID_OFFSET) {
+                assertEquals(0, offset % 16);
+            }
+        }
+    }
+
+    @Test
+    public void reportsExhaustion() {
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+        for (int i = 0; i < 16; i++) {
+            assertNotEquals(BuddyAllocator.INVALID_OFFSET, allocator.allocate(64, 1));
+        }
+
+        assertEquals(BuddyAllocator.INVALID_OFFSET, allocator.allocate(64, 1));
+        assertEquals(0, allocator.getFreeBytes());
+        assertEquals(0, allocator.getLargestFreeBlock());
+
+        BuddyAllocator empty = new BuddyAllocator(1024, 64);
+        assertEquals(BuddyAllocator.INVALID_OFFSET, empty.allocate(2048, 1));
+        assertEquals(BuddyAllocator.INVALID_OFFSET, empty.allocate(64, 2048));
+        assertTrue(empty.isEmpty());
+    }
+
+    @Test
+    public void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BuddyAllocator(1000, 64));
+        assertThrows(IllegalArgumentException.class, () -> new BuddyAllocator(1024, 48));
+        assertThrows(IllegalArgumentException.class, () -> new BuddyAllocator(64, 1024));
+
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+        assertThrows(IllegalArgumentException.class, () -> allocator.allocate(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> allocator.allocate(64, 3));
+        assertThrows(IllegalArgumentException.class, () -> allocator.free(128));
+
+        long offset = allocator.allocate(64, 1);
+        allocator.free(offset);
+        assertThrows(IllegalArgumentException.class, () -> allocator.free(offset));
+    }
+
+    @Test
+    public void tracksUtilizationAndFragmentation() {
+        BuddyAllocator allocator = new BuddyAllocator(1024, 64);
+        assertEquals(0, allocator.getUtilization());
+        assertEquals(0, allocator.getFragmentation());
+
+        long[] offsets = new long[4];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = allocator.allocate(200, 1);
+        }
+        assertEquals(800 / 1024.0, allocator.getUtilization(), 1e-9);
+        assertEquals(0, allocator.getFragmentation());
+
+        allocator.free(offsets[0]);
+        allocator.free(offsets[2]);
+        assertEquals(512, allocator.getFreeBytes());
+        assertEquals(256, allocator.getLargestFreeBlock());
+        assertEquals(0.5, allocator.getFragmentation(), 1e-9);
+        assertEquals(400 / 1024.0, allocator.getUtilization(), 1e-9);
+    }
+
+    @Test
+    public void roundsToTheNextPowerOfTwo() {
+        assertEquals(1, BuddyAllocator.nextPowerOfTwo(0));
+        assertEquals(1, BuddyAllocator.nextPowerOfTwo(1));
+        assertEquals(64, BuddyAllocator.nextPowerOfTwo(64));
+        assertEquals(128, BuddyAllocator.nextPowerOfTwo(65));
+    }
+}